@@ -24,9 +24,6 @@
 
 package dev.phomc.tensai.keybinding;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.jetbrains.annotations.Nullable;
 
 /**
@@ -176,11 +173,20 @@ public enum Key {
 	MOUSE_BUTTON_RIGHT(MOUSE_BUTTON_2.code),
 	MOUSE_BUTTON_MIDDLE(MOUSE_BUTTON_3.code);
 
-	private static final Map<Integer, Key> lookupTable = new HashMap<>();
+	// indexed by key code, which avoids boxing on every lookup
+	private static final Key[] lookupTable;
 
 	static {
+		int maxCode = 0;
+
+		for (Key key : Key.values()) {
+			maxCode = Math.max(maxCode, key.code);
+		}
+
+		lookupTable = new Key[maxCode + 1];
+
 		for (Key key : Key.values()) {
-			lookupTable.put(key.code, key);
+			lookupTable[key.code] = key;
 		}
 	}
 
@@ -198,7 +204,7 @@ public enum Key {
 	 */
 	@Nullable
 	public static Key lookup(int code) {
-		return lookupTable.get(code);
+		return code >= 0 && code < lookupTable.length ? lookupTable[code] : null;
 	}
 
 	/**
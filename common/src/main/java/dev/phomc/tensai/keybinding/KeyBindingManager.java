@@ -27,24 +27,51 @@
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
 import java.util.stream.Collectors;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.message.c2s.KeyBindingStateView;
 import dev.phomc.tensai.networking.message.s2c.KeyBindingRegisterMessage;
 import dev.phomc.tensai.server.client.ClientHandle;
 
 /**
- * Represents the server-side keybinding manager of a client.
+ * Represents the server-side keybinding manager of a client.<br>
+ * Key states are updated by the network thread. {@link KeyState} objects are meant to be used by update event
+ * listeners, while other threads should read {@link #snapshot()} instead.<br>
+ * States are kept in a row of a {@link KeyStateStore}, and {@link KeyState} objects are views onto it which are only
+ * created when asked for.
  */
 public class KeyBindingManager {
-	protected final ClientHandle clientHandle;
-	protected final KeyState[] keyStates = new KeyState[Key.values().length];
+	private static final Key[] KEYS = Key.values();
+
+	protected volatile ClientHandle clientHandle;
+	protected final KeyStateChanges changes = new KeyStateChanges(this);
+	private KeyState[] views;
+
+	// the row is written under the publish lock and replaced once the slot is released, see KeyStateSnapshot
+	private final StampedLock publishLock = new StampedLock();
+	private final KeyStateStore store;
+	private volatile KeyStateStore.Row row;
+	private long version;
 
 	public KeyBindingManager(@NotNull ClientHandle clientHandle) {
+		this(clientHandle, null);
+	}
+
+	/**
+	 * Constructs a keybinding manager.
+	 *
+	 * @param clientHandle the client
+	 * @param store        the server-wide store which holds the key states, or {@code null} to hold them privately
+	 */
+	public KeyBindingManager(@NotNull ClientHandle clientHandle, @Nullable KeyStateStore store) {
 		this.clientHandle = clientHandle;
+		this.store = store;
+		this.row = store == null ? new KeyStateStore.Row() : store.acquire(clientHandle);
 	}
 
 	/**
@@ -56,9 +83,9 @@ public KeyBindingManager(@NotNull ClientHandle clientHandle) {
 	public void registerKeyBindings(@NotNull KeyBinding... keyBindings) {
 		if (keyBindings.length == 0) return;
 
-		clientHandle.sendPluginMessage(Channel.KEYBINDING, new KeyBindingRegisterMessage(
+		clientHandle.sendMessage(Channel.KEYBINDING, new KeyBindingRegisterMessage(
 				Arrays.stream(keyBindings).filter(k -> !isKeyRegistered(k.getKey())).collect(Collectors.toUnmodifiableList())
-		).pack());
+		));
 	}
 
 	/**
@@ -68,9 +95,9 @@ public void registerKeyBindings(@NotNull KeyBinding... keyBindings) {
 	public @NotNull Set<Key> getRegisteredKeys() {
 		Set<Key> keys = EnumSet.noneOf(Key.class);
 
-		for (int i = 0; i < keyStates.length; i++) {
-			if (keyStates[i] != null) {
-				keys.add(Key.values()[i]);
+		for (int i = 0; i < KEYS.length; i++) {
+			if ((getPackedState(i) & KeyStateSnapshot.REGISTERED_FLAG) != 0) {
+				keys.add(KEYS[i]);
 			}
 		}
 
@@ -84,7 +111,62 @@ public void registerKeyBindings(@NotNull KeyBinding... keyBindings) {
 	 */
 	@Nullable
 	public KeyState getKeyState(@NotNull Key key) {
-		return keyStates[key.ordinal()];
+		return isKeyRegistered(key) ? getKeyState(key.ordinal()) : null;
+	}
+
+	@NotNull
+	KeyState getKeyState(int ordinal) {
+		if (views == null) views = new KeyState[KEYS.length];
+		KeyState view = views[ordinal];
+		if (view == null) views[ordinal] = view = new StoredKeyState(this, ordinal);
+		return view;
+	}
+
+	int getPackedState(int ordinal) {
+		KeyStateStore.Row current = row;
+		return current.states[current.offset + ordinal];
+	}
+
+	int getTimesPressed(int ordinal) {
+		KeyStateStore.Row current = row;
+		int index = current.offset + ordinal;
+		return Math.max((current.states[index] >>> KeyStateSnapshot.TIMES_PRESSED_SHIFT) - current.consumed[index], 0);
+	}
+
+	boolean consumePress(int ordinal) {
+		long stamp = publishLock.writeLock();
+
+		// an update resets the consumed presses, so it must not interleave with the check and the increment
+		try {
+			if (getTimesPressed(ordinal) == 0) return false;
+			row.consumed[row.offset + ordinal]++;
+			return true;
+		} finally {
+			publishLock.unlockWrite(stamp);
+		}
+	}
+
+	void sweep(int ordinal) {
+		long stamp = publishLock.writeLock();
+
+		try {
+			row.states[row.offset + ordinal] &= ~KeyStateSnapshot.DIRTY_MASK;
+		} finally {
+			publishLock.unlockWrite(stamp);
+		}
+	}
+
+	void write(int ordinal, int state) {
+		long stamp = publishLock.writeLock();
+
+		try {
+			int index = row.offset + ordinal;
+			row.states[index] = state;
+			row.consumed[index] = 0;
+			row.changedAt[index] = ++version;
+		} finally {
+			publishLock.unlockWrite(stamp);
+		}
 	}
 
 	/**
@@ -95,8 +177,154 @@ public KeyState getKeyState(@NotNull Key key) {
 	 */
 	public void setKeyState(@NotNull Key key, @NotNull KeyState keyState) {
 		if (isKeyRegistered(key)) throw new RuntimeException("attempted to reinitialize key state");
+		write(key.ordinal(), KeyStateSnapshot.pack(keyState));
+	}
+
+	/**
+	 * Gets the version of the key states. The version increases with every update received from the client, which
+	 * allows to cheaply check for changes before taking a {@link #snapshot()}.<br>
+	 * This method can be called from any thread.
+	 *
+	 * @return version
+	 */
+	public long getVersion() {
+		long stamp = publishLock.tryOptimisticRead();
+		long result = version;
+		if (publishLock.validate(stamp)) return result;
+		stamp = publishLock.readLock();
 
-		keyStates[key.ordinal()] = keyState;
+		try {
+			return version;
+		} finally {
+			publishLock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Takes a consistent copy of all key states.<br>
+	 * This method can be called from any thread. It does not block unless an update is being applied at the same time.
+	 *
+	 * @return snapshot
+	 */
+	@NotNull
+	public KeyStateSnapshot snapshot() {
+		int[] states = new int[KEYS.length];
+		long[] versions = new long[KEYS.length];
+		long stamp = publishLock.tryOptimisticRead();
+		KeyStateStore.Row current = row;
+		long result = version;
+		System.arraycopy(current.states, current.offset, states, 0, states.length);
+		System.arraycopy(current.changedAt, current.offset, versions, 0, versions.length);
+
+		// retry with the read lock, which waits for the update in progress
+		if (!publishLock.validate(stamp)) {
+			stamp = publishLock.readLock();
+
+			try {
+				current = row;
+				result = version;
+				System.arraycopy(current.states, current.offset, states, 0, states.length);
+				System.arraycopy(current.changedAt, current.offset, versions, 0, versions.length);
+			} finally {
+				publishLock.unlockRead(stamp);
+			}
+		}
+
+		return new KeyStateSnapshot(result, states, versions);
+	}
+
+	/**
+	 * Applies a received state update.<br>
+	 * Dirty values of the keys changed by the previous update are cleaned, then the received states are written into
+	 * the row of this client. No object is created.<br>
+	 * <b>INTERNAL METHOD. DO NOT USE.</b>
+	 * @param update the update
+	 * @return a view of the changed keys, which is reused by the next update
+	 */
+	@NotNull
+	public KeyStateChanges applyStateUpdate(@NotNull KeyBindingStateView update) {
+		long stamp = publishLock.writeLock();
+
+		try {
+			int[] states = row.states;
+			int offset = row.offset;
+
+			// dirty values are only set by updates, so other keys are already clean
+			for (int i = 0; i < changes.size(); i++) {
+				states[offset + changes.getKey(i).ordinal()] &= ~KeyStateSnapshot.DIRTY_MASK;
+			}
+
+			changes.reset();
+			update.rewind();
+			version++;
+
+			while (update.next()) {
+				int ordinal = update.getKey().ordinal();
+				int index = offset + ordinal;
+				int state = KeyStateSnapshot.pack(update.getTimesPressed(), update.isPressed(), update.getDirty());
+
+				if (row.slot >= 0) {
+					// compare with the stored state, since KeyState#wasPressed() only counts consumed presses
+					int previous = states[index];
+					boolean pressed = update.isPressed() && (previous & KeyStateSnapshot.PRESSED_FLAG) == 0
+							|| state >>> KeyStateSnapshot.TIMES_PRESSED_SHIFT > previous >>> KeyStateSnapshot.TIMES_PRESSED_SHIFT;
+					store.getPressedKeyIndex().update(row.slot, update.getKey(), update.isPressed(), pressed);
+				}
+
+				states[index] = state;
+				row.consumed[index] = 0;
+				row.changedAt[index] = version;
+				changes.add(ordinal);
+			}
+		} finally {
+			publishLock.unlockWrite(stamp);
+		}
+
+		return changes;
+	}
+
+	/**
+	 * Gets the slot of this client in the {@link KeyStateStore} and its {@link PressedKeyIndex}.<br>
+	 * This method can be called from any thread.
+	 *
+	 * @return the slot, or {@code -1} if the client has none
+	 */
+	public int getSlot() {
+		return row.slot;
+	}
+
+	/**
+	 * Moves this manager to another handle of the same client, e.g: when the player entity is recreated.<br>
+	 * <b>INTERNAL METHOD. DO NOT USE.</b>
+	 * @param clientHandle the new handle
+	 */
+	public void setClientHandle(@NotNull ClientHandle clientHandle) {
+		long stamp = publishLock.writeLock();
+
+		try {
+			this.clientHandle = clientHandle;
+			if (row.slot >= 0) store.getPressedKeyIndex().bind(row.slot, clientHandle);
+		} finally {
+			publishLock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Frees the slot of this client in the {@link KeyStateStore} once the client disconnects. The key states are kept
+	 * privately, and later updates are no longer indexed.<br>
+	 * <b>INTERNAL METHOD. DO NOT USE.</b>
+	 */
+	public void release() {
+		long stamp = publishLock.writeLock();
+
+		try {
+			if (row.slot < 0) return;
+			KeyStateStore.Row released = row;
+			row = released.detach();
+			store.release(released);
+		} finally {
+			publishLock.unlockWrite(stamp);
+		}
 	}
 
 	/**
@@ -105,6 +333,6 @@ public void setKeyState(@NotNull Key key, @NotNull KeyState keyState) {
 	 * @return {@code true} if registered, otherwise {@code false}
 	 */
 	public boolean isKeyRegistered(@NotNull Key key) {
-		return getKeyState(key) != null;
+		return (getPackedState(key.ordinal()) & KeyStateSnapshot.REGISTERED_FLAG) != 0;
 	}
 }
@@ -30,7 +30,8 @@
  * Represents a key state.<br>
  * The key state is used on <b>server-side only</b>. No key state update will be sent to client.<br>
  * Note: <b>Thread safety is not guaranteed</b> due to performance cost increase. Please ensure that reading and writing
- * with {@code KeyState} is done in the same thread as one involved in the event system.
+ * with {@code KeyState} is done in the same thread as one involved in the event system. Other threads can read
+ * {@link KeyBindingManager#snapshot()} instead.
  */
 public class KeyState {
 	public static byte DIRTY_TIME_PRESSED = 1;
@@ -126,21 +127,32 @@ public void sweep() {
 	 * @param another key state
 	 */
 	public void copyFrom(KeyState another) {
-		this.pressed = another.pressed;
-		this.timesPressed = another.timesPressed;
-		this.dirty = another.dirty;
+		set(another.getTimesPressed(), another.isPressed(), another.getDirty());
+	}
+
+	/**
+	 * Sets all data of this key state.<br>
+	 * <b>INTERNAL METHOD. DO NOT USE.</b>
+	 * @param timesPressed press times
+	 * @param pressed whether the key is pressed
+	 * @param dirty dirty value
+	 */
+	public void set(int timesPressed, boolean pressed, byte dirty) {
+		this.timesPressed = Math.min(Math.max(timesPressed, 0), Short.MAX_VALUE);
+		this.pressed = pressed;
+		this.dirty = dirty;
 	}
 
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
+		if (!(o instanceof KeyState)) return false;
 		KeyState keyState = (KeyState) o;
-		return timesPressed == keyState.timesPressed && pressed == keyState.pressed && dirty == keyState.dirty;
+		return getTimesPressed() == keyState.getTimesPressed() && isPressed() == keyState.isPressed() && getDirty() == keyState.getDirty();
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(timesPressed, pressed, dirty);
+		return Objects.hash(getTimesPressed(), isPressed(), getDirty());
 	}
 }
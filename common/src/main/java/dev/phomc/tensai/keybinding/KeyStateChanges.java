@@ -0,0 +1,151 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.keybinding;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An unmodifiable view of the keys which were changed by the last state update of a {@link KeyBindingManager}.<br>
+ * The view is reused by every update of the same manager, so it must not be kept once the update event returns.
+ * Entries can be iterated by index without creating any object:
+ * <pre>{@code
+ * 	for (int i = 0; i < changes.size(); i++) {
+ * 		handle(changes.getKey(i), changes.getState(i));
+ * 	}
+ * }</pre>
+ * Values are the key states of the manager itself.
+ */
+public final class KeyStateChanges extends AbstractMap<Key, KeyState> {
+	private static final Key[] KEYS = Key.values();
+
+	private final KeyBindingManager manager;
+	private final int[] ordinals = new int[KEYS.length];
+	private final boolean[] changed = new boolean[KEYS.length];
+	private final Set<Map.Entry<Key, KeyState>> entrySet = new EntrySet();
+	private int size;
+
+	KeyStateChanges(KeyBindingManager manager) {
+		this.manager = manager;
+	}
+
+	void add(int ordinal) {
+		if (changed[ordinal]) return;
+		changed[ordinal] = true;
+		ordinals[size++] = ordinal;
+	}
+
+	void reset() {
+		for (int i = 0; i < size; i++) {
+			changed[ordinals[i]] = false;
+		}
+
+		size = 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the changed key at the given index.
+	 *
+	 * @param index index, from {@code 0} to {@link #size()} exclusive
+	 * @return the key
+	 */
+	@NotNull
+	public Key getKey(int index) {
+		return KEYS[ordinals[checkIndex(index)]];
+	}
+
+	/**
+	 * Gets the state of the changed key at the given index.
+	 *
+	 * @param index index, from {@code 0} to {@link #size()} exclusive
+	 * @return the key state
+	 */
+	@NotNull
+	public KeyState getState(int index) {
+		return manager.getKeyState(ordinals[checkIndex(index)]);
+	}
+
+	private int checkIndex(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+		return index;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return key instanceof Key && changed[((Key) key).ordinal()];
+	}
+
+	@Nullable
+	@Override
+	public KeyState get(Object key) {
+		return containsKey(key) ? manager.getKeyState(((Key) key).ordinal()) : null;
+	}
+
+	@NotNull
+	@Override
+	public Set<Map.Entry<Key, KeyState>> entrySet() {
+		return entrySet;
+	}
+
+	private final class EntrySet extends AbstractSet<Map.Entry<Key, KeyState>> {
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@NotNull
+		@Override
+		public Iterator<Map.Entry<Key, KeyState>> iterator() {
+			return new Iterator<>() {
+				private int index;
+
+				@Override
+				public boolean hasNext() {
+					return index < size;
+				}
+
+				@Override
+				public Map.Entry<Key, KeyState> next() {
+					if (index >= size) throw new NoSuchElementException();
+					Map.Entry<Key, KeyState> entry = Map.entry(getKey(index), getState(index));
+					index++;
+					return entry;
+				}
+			};
+		}
+	}
+}
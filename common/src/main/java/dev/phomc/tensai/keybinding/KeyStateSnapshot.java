@@ -0,0 +1,132 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.keybinding;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An immutable, consistent copy of the key states of a client, taken by {@link KeyBindingManager#snapshot()}.<br>
+ * Unlike {@link KeyState}, a snapshot can be read from any thread. It holds the states as received from the client, so
+ * {@link KeyState#wasPressed()} does not affect it.
+ */
+public final class KeyStateSnapshot {
+	static final int DIRTY_MASK = 0x03;
+	static final int PRESSED_FLAG = 0x04;
+	static final int REGISTERED_FLAG = 0x08;
+	static final int TIMES_PRESSED_SHIFT = 16;
+
+	private final long version;
+	private final int[] states;
+	private final long[] changedAt;
+
+	KeyStateSnapshot(long version, int[] states, long[] changedAt) {
+		this.version = version;
+		this.states = states;
+		this.changedAt = changedAt;
+	}
+
+	/**
+	 * Packs a key state into an integer.
+	 *
+	 * @param state key state
+	 * @return packed state
+	 */
+	static int pack(@NotNull KeyState state) {
+		return pack(state.getTimesPressed(), state.isPressed(), state.getDirty());
+	}
+
+	/**
+	 * Packs the values of a key state into an integer.
+	 *
+	 * @param timesPressed press times, which is clamped like {@link KeyState#getTimesPressed()}
+	 * @param pressed      whether the key is pressed
+	 * @param dirty        dirty value
+	 * @return packed state
+	 */
+	static int pack(int timesPressed, boolean pressed, byte dirty) {
+		return REGISTERED_FLAG | (dirty & DIRTY_MASK) | (pressed ? PRESSED_FLAG : 0)
+				| Math.min(Math.max(timesPressed, 0), Short.MAX_VALUE) << TIMES_PRESSED_SHIFT;
+	}
+
+	/**
+	 * Gets the version of this snapshot. The version increases with every update received from the client.
+	 *
+	 * @return version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Checks whether the given key has a state.
+	 *
+	 * @param key the key
+	 * @return {@code true} if the key has a state
+	 */
+	public boolean isRegistered(@NotNull Key key) {
+		return (states[key.ordinal()] & REGISTERED_FLAG) != 0;
+	}
+
+	/**
+	 * Gets how many times the key press event was fired, see {@link KeyState#getTimesPressed()}.
+	 *
+	 * @param key the key
+	 * @return press times, or {@code 0} if the key has no state
+	 */
+	public int getTimesPressed(@NotNull Key key) {
+		return states[key.ordinal()] >>> TIMES_PRESSED_SHIFT;
+	}
+
+	/**
+	 * Checks whether the key is pressed (down), see {@link KeyState#isPressed()}.
+	 *
+	 * @param key the key
+	 * @return {@code true} if it is
+	 */
+	public boolean isPressed(@NotNull Key key) {
+		return (states[key.ordinal()] & PRESSED_FLAG) != 0;
+	}
+
+	/**
+	 * Gets the dirty value of the key, see {@link KeyState#getDirty()}.
+	 *
+	 * @param key the key
+	 * @return dirty value
+	 */
+	public byte getDirty(@NotNull Key key) {
+		return (byte) (states[key.ordinal()] & DIRTY_MASK);
+	}
+
+	/**
+	 * Checks whether the state of the given key was changed by an update after the given version.
+	 *
+	 * @param key     the key
+	 * @param version a version which was previously returned by {@link #getVersion()}
+	 * @return {@code true} or {@code false}
+	 */
+	public boolean hasChangedSince(@NotNull Key key, long version) {
+		return changedAt[key.ordinal()] > version;
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.keybinding;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.jetbrains.annotations.NotNull;
+
+import dev.phomc.tensai.server.client.ClientHandle;
+
+/**
+ * Stores the key states of all clients in primitive arrays.<br>
+ * Each client occupies a slot, which holds a row of packed states indexed by key ordinal. Slots are grouped into
+ * pages of {@link #PAGE_SIZE} which never move once allocated, so a {@link KeyBindingManager} keeps a direct
+ * reference to its row, and a scan over many clients reads contiguous memory. Managers and their {@link KeyState}
+ * objects are views onto the rows.<br>
+ * Slots are shared with the {@link PressedKeyIndex} of this store.
+ */
+public final class KeyStateStore {
+	/**
+	 * The number of slots per page.
+	 */
+	public static final int PAGE_SIZE = 64;
+	static final int KEY_COUNT = Key.values().length;
+
+	private final PressedKeyIndex pressedKeyIndex = new PressedKeyIndex(PAGE_SIZE);
+	private final BitSet occupied = new BitSet();
+	private volatile Page[] pages = new Page[0];
+
+	@NotNull
+	public PressedKeyIndex getPressedKeyIndex() {
+		return pressedKeyIndex;
+	}
+
+	/**
+	 * Assigns a slot to a client.
+	 *
+	 * @param client the client
+	 * @return the row of the slot
+	 */
+	@NotNull
+	synchronized Row acquire(@NotNull ClientHandle client) {
+		int slot = occupied.nextClearBit(0);
+		Page[] current = pages;
+
+		if (slot / PAGE_SIZE >= current.length) {
+			current = Arrays.copyOf(current, current.length + 1);
+			current[current.length - 1] = new Page();
+			pages = current;
+		}
+
+		occupied.set(slot);
+		pressedKeyIndex.bind(slot, client);
+		return new Row(current[slot / PAGE_SIZE], slot);
+	}
+
+	/**
+	 * Frees a slot, clearing its row.
+	 *
+	 * @param row the row of the slot
+	 */
+	synchronized void release(@NotNull Row row) {
+		pressedKeyIndex.release(row.slot);
+		Arrays.fill(row.states, row.offset, row.offset + KEY_COUNT, 0);
+		Arrays.fill(row.changedAt, row.offset, row.offset + KEY_COUNT, 0);
+		Arrays.fill(row.consumed, row.offset, row.offset + KEY_COUNT, (short) 0);
+		occupied.clear(row.slot);
+	}
+
+	/**
+	 * Visits the state of the given key of every client which registered it, in slot order.<br>
+	 * This method can be called from any thread. States are read without locking, so states of clients which are
+	 * being updated at the same time may be visited before or after the update.
+	 *
+	 * @param key     the key
+	 * @param visitor the visitor
+	 */
+	public void forEach(@NotNull Key key, @NotNull Visitor visitor) {
+		Page[] current = pages;
+
+		for (int i = 0; i < current.length; i++) {
+			int[] states = current[i].states;
+
+			for (int index = key.ordinal(), slot = i * PAGE_SIZE; index < states.length; index += KEY_COUNT, slot++) {
+				int state = states[index];
+				if ((state & KeyStateSnapshot.REGISTERED_FLAG) == 0) continue;
+				visitor.visit(slot, state >>> KeyStateSnapshot.TIMES_PRESSED_SHIFT, (state & KeyStateSnapshot.PRESSED_FLAG) != 0);
+			}
+		}
+	}
+
+	public interface Visitor {
+		/**
+		 * Visits a key state, see {@link KeyStateSnapshot}.
+		 *
+		 * @param slot         the slot of the client
+		 * @param timesPressed how many times the key press event was fired, as received from the client
+		 * @param pressed      whether the key is pressed (down)
+		 */
+		void visit(int slot, int timesPressed, boolean pressed);
+	}
+
+	private static final class Page {
+		private final int[] states = new int[PAGE_SIZE * KEY_COUNT];
+		private final long[] changedAt = new long[PAGE_SIZE * KEY_COUNT];
+		private final short[] consumed = new short[PAGE_SIZE * KEY_COUNT];
+	}
+
+	/**
+	 * The key states of a client: packed states in the format of {@link KeyStateSnapshot}, the version at which each
+	 * key changed, and the presses consumed by {@link KeyState#wasPressed()} since.
+	 */
+	static final class Row {
+		final int[] states;
+		final long[] changedAt;
+		final short[] consumed;
+		final int offset;
+		final int slot;
+
+		private Row(Page page, int slot) {
+			this.states = page.states;
+			this.changedAt = page.changedAt;
+			this.consumed = page.consumed;
+			this.offset = (slot % PAGE_SIZE) * KEY_COUNT;
+			this.slot = slot;
+		}
+
+		/**
+		 * Constructs a row which is not part of a store.
+		 */
+		Row() {
+			this.states = new int[KEY_COUNT];
+			this.changedAt = new long[KEY_COUNT];
+			this.consumed = new short[KEY_COUNT];
+			this.offset = 0;
+			this.slot = -1;
+		}
+
+		/**
+		 * Copies this row into a new row which is not part of a store.
+		 *
+		 * @return the copy
+		 */
+		Row detach() {
+			Row copy = new Row();
+			System.arraycopy(states, offset, copy.states, 0, KEY_COUNT);
+			System.arraycopy(changedAt, offset, copy.changedAt, 0, KEY_COUNT);
+			System.arraycopy(consumed, offset, copy.consumed, 0, KEY_COUNT);
+			return copy;
+		}
+	}
+}
@@ -0,0 +1,319 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.keybinding;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import dev.phomc.tensai.server.client.ClientHandle;
+
+/**
+ * A server-wide index of the keys which players are pressing.<br>
+ * Each client has a slot in the {@link KeyStateStore}, and the index holds a bitset of slots per {@link Key}. Queries
+ * such as "who is pressing a key" therefore take a few word operations rather than a visit to every player. Results
+ * are returned as bitsets ({@code long[]}, where bit {@code i} of word {@code i / 64} is slot {@code i}), which can be
+ * intersected with {@link #and(long[], long[])} and resolved with {@link #getClients(long[])}.<br>
+ * The index is updated by network threads as key state updates are applied, and can be queried from any thread. Each
+ * word of a result is consistent, but a result may reflect updates of different players at different times.
+ */
+public final class PressedKeyIndex {
+	private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+	private static final int KEY_COUNT = Key.values().length;
+
+	// bits are updated atomically under the read lock, while the arrays are replaced under the write lock
+	private final StampedLock lock = new StampedLock();
+	private ClientHandle[] clients;
+	private int words;
+
+	// indexed by key ordinal * words + slot / 64
+	private long[] pressing;
+	private long[] pressedThisTick;
+	private long[] pressedLastTick;
+
+	/**
+	 * Constructs an index.
+	 *
+	 * @param capacity the initial number of slots, which grows as needed
+	 */
+	PressedKeyIndex(int capacity) {
+		words = Math.max(1, (capacity + 63) >>> 6);
+		clients = new ClientHandle[words << 6];
+		pressing = new long[KEY_COUNT * words];
+		pressedThisTick = new long[KEY_COUNT * words];
+		pressedLastTick = new long[KEY_COUNT * words];
+	}
+
+	/**
+	 * Sets the client of a slot, e.g: when the slot is assigned or the player entity is recreated.
+	 *
+	 * @param slot   the slot
+	 * @param client the client
+	 */
+	void bind(int slot, @NotNull ClientHandle client) {
+		long stamp = lock.writeLock();
+
+		try {
+			while (slot >= clients.length) grow();
+			clients[slot] = client;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Frees a slot, clearing all of its keys.
+	 *
+	 * @param slot the slot
+	 */
+	void release(int slot) {
+		long stamp = lock.writeLock();
+
+		try {
+			long mask = ~(1L << slot);
+
+			for (int i = slot >>> 6; i < pressing.length; i += words) {
+				pressing[i] &= mask;
+				pressedThisTick[i] &= mask;
+				pressedLastTick[i] &= mask;
+			}
+
+			clients[slot] = null;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Updates a key of a slot.
+	 *
+	 * @param slot    the slot
+	 * @param key     the key
+	 * @param down    whether the key is pressed (down)
+	 * @param pressed whether the key was pressed since the previous update
+	 */
+	void update(int slot, @NotNull Key key, boolean down, boolean pressed) {
+		long stamp = lock.readLock();
+
+		try {
+			int index = key.ordinal() * words + (slot >>> 6);
+			long bit = 1L << slot;
+
+			if (down) {
+				WORDS.getAndBitwiseOr(pressing, index, bit);
+			} else {
+				WORDS.getAndBitwiseAnd(pressing, index, ~bit);
+			}
+
+			if (pressed) WORDS.getAndBitwiseOr(pressedThisTick, index, bit);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Starts a new tick: the keys pressed during the ending tick become {@link #getPressedLastTick(Key)}.<br>
+	 * <b>INTERNAL METHOD. DO NOT USE.</b>
+	 */
+	public void tick() {
+		long stamp = lock.writeLock();
+
+		try {
+			long[] ended = pressedThisTick;
+			pressedThisTick = pressedLastTick;
+			pressedLastTick = ended;
+			Arrays.fill(pressedThisTick, 0);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	private void grow() {
+		int newWords = words << 1;
+		pressing = grow(pressing, newWords);
+		pressedThisTick = grow(pressedThisTick, newWords);
+		pressedLastTick = grow(pressedLastTick, newWords);
+		clients = Arrays.copyOf(clients, newWords << 6);
+		words = newWords;
+	}
+
+	private long[] grow(long[] bits, int newWords) {
+		long[] result = new long[KEY_COUNT * newWords];
+
+		for (int key = 0; key < KEY_COUNT; key++) {
+			System.arraycopy(bits, key * words, result, key * newWords, words);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Checks whether the client at the given slot is pressing the given key.
+	 *
+	 * @param slot the slot
+	 * @param key  the key
+	 * @return {@code true} or {@code false}
+	 */
+	public boolean isPressing(int slot, @NotNull Key key) {
+		long[] result = getPressing(key);
+		return (slot >>> 6) < result.length && (result[slot >>> 6] & (1L << slot)) != 0;
+	}
+
+	/**
+	 * Gets the slots of clients which are pressing the given key.
+	 *
+	 * @param key the key
+	 * @return a new bitset of slots
+	 */
+	@NotNull
+	public long[] getPressing(@NotNull Key key) {
+		return copy(key, false);
+	}
+
+	/**
+	 * Gets the slots of clients which are pressing all the given keys.
+	 *
+	 * @param keys the keys
+	 * @return a new bitset of slots
+	 */
+	@NotNull
+	public long[] getPressingAll(@NotNull Key... keys) {
+		if (keys.length == 0) return new long[0];
+		long[] result = getPressing(keys[0]);
+
+		for (int i = 1; i < keys.length; i++) {
+			result = and(result, getPressing(keys[i]));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gets the slots of clients which pressed the given key during the last tick. A key is pressed if it went down,
+	 * or if its number of presses increased.
+	 *
+	 * @param key the key
+	 * @return a new bitset of slots
+	 */
+	@NotNull
+	public long[] getPressedLastTick(@NotNull Key key) {
+		return copy(key, true);
+	}
+
+	private long[] copy(Key key, boolean lastTick) {
+		long stamp = lock.tryOptimisticRead();
+		long[] result = copyWords(key, lastTick);
+		if (lock.validate(stamp)) return result;
+		stamp = lock.readLock();
+
+		try {
+			return copyWords(key, lastTick);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	private long[] copyWords(Key key, boolean lastTick) {
+		long[] bits = lastTick ? pressedLastTick : pressing;
+		int count = words;
+		long[] result = new long[count];
+		int offset = key.ordinal() * count;
+
+		// the arrays may be replaced concurrently, which is detected by validation afterwards
+		if (offset + count > bits.length) return result;
+
+		for (int i = 0; i < count; i++) {
+			result[i] = (long) WORDS.getAcquire(bits, offset + i);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Intersects two bitsets of slots.
+	 *
+	 * @param a a bitset
+	 * @param b another bitset
+	 * @return a new bitset of slots which are in both
+	 */
+	@NotNull
+	public static long[] and(@NotNull long[] a, @NotNull long[] b) {
+		long[] result = new long[Math.min(a.length, b.length)];
+
+		for (int i = 0; i < result.length; i++) {
+			result[i] = a[i] & b[i];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gets the client at the given slot.
+	 *
+	 * @param slot the slot
+	 * @return the client, or {@code null} if the slot is free
+	 */
+	@Nullable
+	public ClientHandle getClient(int slot) {
+		long stamp = lock.readLock();
+
+		try {
+			return slot >= 0 && slot < clients.length ? clients[slot] : null;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Resolves a bitset of slots into clients.
+	 *
+	 * @param slots a bitset of slots
+	 * @return a new list of clients, ordered by slot
+	 */
+	@NotNull
+	public List<ClientHandle> getClients(@NotNull long[] slots) {
+		List<ClientHandle> result = new ArrayList<>();
+		long stamp = lock.readLock();
+
+		try {
+			for (int i = 0; i < slots.length; i++) {
+				for (long word = slots[i]; word != 0; word &= word - 1) {
+					int slot = (i << 6) + Long.numberOfTrailingZeros(word);
+					if (slot < clients.length && clients[slot] != null) result.add(clients[slot]);
+				}
+			}
+		} finally {
+			lock.unlockRead(stamp);
+		}
+
+		return result;
+	}
+}
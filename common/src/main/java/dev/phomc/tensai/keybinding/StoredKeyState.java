@@ -0,0 +1,70 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.keybinding;
+
+/**
+ * A key state of a {@link KeyBindingManager}, which reads and writes the row of the manager in a
+ * {@link KeyStateStore} instead of fields.
+ */
+final class StoredKeyState extends KeyState {
+	private final KeyBindingManager manager;
+	private final int ordinal;
+
+	StoredKeyState(KeyBindingManager manager, int ordinal) {
+		super(0, false, (byte) 0);
+		this.manager = manager;
+		this.ordinal = ordinal;
+	}
+
+	@Override
+	public int getTimesPressed() {
+		return manager.getTimesPressed(ordinal);
+	}
+
+	@Override
+	public boolean wasPressed() {
+		return manager.consumePress(ordinal);
+	}
+
+	@Override
+	public boolean isPressed() {
+		return (manager.getPackedState(ordinal) & KeyStateSnapshot.PRESSED_FLAG) != 0;
+	}
+
+	@Override
+	public byte getDirty() {
+		return (byte) (manager.getPackedState(ordinal) & KeyStateSnapshot.DIRTY_MASK);
+	}
+
+	@Override
+	public void sweep() {
+		manager.sweep(ordinal);
+	}
+
+	@Override
+	public void set(int timesPressed, boolean pressed, byte dirty) {
+		manager.write(ordinal, KeyStateSnapshot.pack(timesPressed, pressed, dirty));
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.networking;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents the protocol version and the optional features which are supported by one side of a connection, or
+ * agreed by both sides after the handshake.<br>
+ * Connections start with {@link #LEGACY} capabilities, which are also kept for peers that do not take part in the
+ * handshake. Therefore, newer formats must only be used once they are agreed.
+ */
+public final class Capabilities {
+	/**
+	 * The latest protocol version of this side.
+	 */
+	public static final int PROTOCOL_VERSION = 2;
+
+	/**
+	 * The capabilities of peers which do not support the handshake.
+	 */
+	public static final Capabilities LEGACY = new Capabilities(1, 0);
+
+	/**
+	 * The capabilities of this side.
+	 */
+	public static final Capabilities LOCAL = new Capabilities(PROTOCOL_VERSION, Feature.mask(EnumSet.allOf(Feature.class)));
+
+	private final int protocolVersion;
+	private final int features;
+
+	public Capabilities(int protocolVersion, int features) {
+		this.protocolVersion = protocolVersion;
+		this.features = features;
+	}
+
+	public int getProtocolVersion() {
+		return protocolVersion;
+	}
+
+	/**
+	 * Gets the feature bits.<br>
+	 * Unknown bits are preserved, so that they can be echoed back to the peer.
+	 *
+	 * @return feature bits
+	 */
+	public int getFeatures() {
+		return features;
+	}
+
+	/**
+	 * Checks whether the given feature is supported.
+	 *
+	 * @param feature feature
+	 * @return {@code true} or {@code false}
+	 */
+	public boolean has(@NotNull Feature feature) {
+		return (features & feature.getMask()) != 0;
+	}
+
+	/**
+	 * Computes the capabilities which are supported by both this and the given side.
+	 *
+	 * @param remote capabilities of the other side
+	 * @return agreed capabilities
+	 */
+	@NotNull
+	public Capabilities negotiate(@NotNull Capabilities remote) {
+		return new Capabilities(Math.min(protocolVersion, remote.protocolVersion), features & remote.features);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof Capabilities)) return false;
+		Capabilities that = (Capabilities) o;
+		return protocolVersion == that.protocolVersion && features == that.features;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * protocolVersion + features;
+	}
+
+	@Override
+	public String toString() {
+		Set<Feature> set = EnumSet.noneOf(Feature.class);
+
+		for (Feature feature : Feature.values()) {
+			if (has(feature)) set.add(feature);
+		}
+
+		return "Capabilities{protocolVersion=" + protocolVersion + ", features=" + set + "}";
+	}
+
+	/**
+	 * Represents an optional protocol feature.<br>
+	 * Each feature owns a fixed bit. Bits must never be reused, since they are part of the protocol.
+	 */
+	public enum Feature {
+		/**
+		 * Key state updates are sent as {@link dev.phomc.tensai.networking.message.c2s.CompactKeyBindingStateUpdate}.
+		 */
+		COMPACT_KEY_STATE(0),
+
+		/**
+		 * Messages of the same tick are sent as a single {@link dev.phomc.tensai.networking.message.s2c.MessageBundle}.
+		 */
+		MESSAGE_BUNDLE(1),
+
+		/**
+		 * Channels are multiplexed over {@link Channel#MULTIPLEXED_NAMESPACE}.
+		 */
+		MULTIPLEXED_CHANNEL(2),
+
+		/**
+		 * Large messages may be compressed, see {@link Compression}.
+		 */
+		COMPRESSION(3),
+
+		/**
+		 * Repeated strings of queued messages are sent as references into a {@link StringTable}.
+		 */
+		STRING_TABLE(4);
+
+		private final int mask;
+
+		Feature(int bit) {
+			this.mask = 1 << bit;
+		}
+
+		public int getMask() {
+			return mask;
+		}
+
+		static int mask(Set<Feature> features) {
+			int mask = 0;
+
+			for (Feature feature : features) {
+				mask |= feature.mask;
+			}
+
+			return mask;
+		}
+	}
+}
@@ -24,23 +24,134 @@
 
 package dev.phomc.tensai.networking;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
- * Represents a message channel.
+ * Represents a message channel.<br>
+ * Channels are multiplexed over the single plugin channel {@link #MULTIPLEXED_NAMESPACE}, where each message is
+ * prefixed with the numeric id of its channel as a VarInt. Clients which do not support
+ * {@link Capabilities.Feature#MULTIPLEXED_CHANNEL} still receive the built-in channels on their own plugin channels,
+ * while channels registered by other plugins are only reachable through the multiplexed channel.
  */
-public enum Channel {
-	KEYBINDING,
-	VFX;
+public final class Channel {
+	/**
+	 * The plugin channel which carries all multiplexed channels.
+	 */
+	public static final String MULTIPLEXED_NAMESPACE = "tensai:mux";
+
+	/**
+	 * The lowest id which can be used by channels of other plugins. Lower ids are reserved for Tensai.
+	 */
+	public static final int FIRST_CUSTOM_ID = 64;
+
+	private static final Map<Integer, Channel> REGISTRY = new ConcurrentSkipListMap<>();
+
+	public static final Channel KEYBINDING = new Channel(0, "tensai:keybinding", true);
+	public static final Channel VFX = new Channel(1, "tensai:vfx", true);
+	public static final Channel HANDSHAKE = new Channel(2, "tensai:handshake", true);
+	public static final Channel BUNDLE = new Channel(3, "tensai:bundle", true);
 
+	private final int id;
 	private final String namespace;
+	private final boolean builtin;
 
-	Channel() {
-		namespace = String.format("tensai:%s", name().toLowerCase());
+	private Channel(int id, String namespace, boolean builtin) {
+		this.id = id;
+		this.namespace = namespace;
+		this.builtin = builtin;
+
+		if (REGISTRY.putIfAbsent(id, this) != null) {
+			throw new IllegalArgumentException(String.format("Channel id %d is already registered", id));
+		}
+	}
+
+	/**
+	 * Registers a channel of another plugin.<br>
+	 * The id must be the same on both sides, therefore it is chosen explicitly rather than assigned.
+	 *
+	 * @param id        channel id, at least {@link #FIRST_CUSTOM_ID}
+	 * @param namespace channel name, e.g: {@code myplugin:sound}
+	 * @return the channel
+	 * @throws IllegalArgumentException if the id is reserved or already registered
+	 */
+	@NotNull
+	public static Channel register(int id, @NotNull String namespace) {
+		if (id < FIRST_CUSTOM_ID) {
+			throw new IllegalArgumentException(String.format("Channel id %d is reserved", id));
+		}
+
+		return new Channel(id, Objects.requireNonNull(namespace), false);
+	}
+
+	/**
+	 * Looks up a registered channel.
+	 *
+	 * @param id channel id
+	 * @return the channel, or {@code null} if it is not registered
+	 */
+	@Nullable
+	public static Channel byId(int id) {
+		return REGISTRY.get(id);
+	}
+
+	/**
+	 * Gets all registered channels, ordered by id.
+	 *
+	 * @return an unmodifiable view of channels
+	 */
+	@NotNull
+	public static Collection<Channel> values() {
+		return Collections.unmodifiableCollection(REGISTRY.values());
+	}
+
+	public int getId() {
+		return id;
 	}
 
 	@NotNull
 	public String getNamespace() {
 		return namespace;
 	}
+
+	/**
+	 * Checks whether this channel has its own plugin channel, which is used for clients without multiplexing.
+	 *
+	 * @return {@code true} for built-in channels
+	 */
+	public boolean isBuiltin() {
+		return builtin;
+	}
+
+	/**
+	 * Checks whether messages of this channel are sent over {@link #MULTIPLEXED_NAMESPACE} with the given agreed
+	 * capabilities. The handshake always uses its own plugin channel, since capabilities are not agreed yet.
+	 *
+	 * @param capabilities agreed capabilities
+	 * @return {@code true} or {@code false}
+	 */
+	public boolean isMultiplexed(@NotNull Capabilities capabilities) {
+		return this != HANDSHAKE && capabilities.has(Capabilities.Feature.MULTIPLEXED_CHANNEL);
+	}
+
+	/**
+	 * Checks whether messages of this channel can be delivered with the given agreed capabilities.
+	 *
+	 * @param capabilities agreed capabilities
+	 * @return {@code true} or {@code false}
+	 */
+	public boolean isReachable(@NotNull Capabilities capabilities) {
+		return builtin || isMultiplexed(capabilities);
+	}
+
+	@Override
+	public String toString() {
+		return namespace;
+	}
 }
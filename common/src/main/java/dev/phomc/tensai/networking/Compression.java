@@ -0,0 +1,237 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.networking;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.jetbrains.annotations.NotNull;
+
+import dev.phomc.tensai.util.VarInts;
+
+/**
+ * Compresses encoded messages whose body is larger than a threshold.<br>
+ * A compressed message has {@link #FLAG} set in its message id, followed by the size of the original body as a VarInt
+ * and the deflated body. Messages are only compressed for peers which agreed
+ * {@link Capabilities.Feature#COMPRESSION}, while received messages are always decompressed if they are flagged.<br>
+ * Deflaters and inflaters are reused per thread. This class is thread-safe.
+ */
+public final class Compression {
+	/**
+	 * The bit of the message id which marks a compressed message.
+	 */
+	public static final int FLAG = 0x80;
+
+	/**
+	 * The default minimum size of a message body to be compressed.
+	 */
+	public static final int DEFAULT_THRESHOLD = 256;
+
+	/**
+	 * The maximum size of a decompressed message body, which protects against decompression bombs.
+	 */
+	public static final int MAX_DECOMPRESSED_SIZE = 1 << 23;
+
+	private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+	private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+	private static final LongAdder compressed = new LongAdder();
+	private static final LongAdder incompressible = new LongAdder();
+	private static final LongAdder originalBytes = new LongAdder();
+	private static final LongAdder compressedBytes = new LongAdder();
+	private static final LongAdder compressTime = new LongAdder();
+	private static final LongAdder decompressed = new LongAdder();
+	private static final LongAdder decompressTime = new LongAdder();
+
+	private static volatile int threshold = DEFAULT_THRESHOLD;
+
+	private Compression() {
+	}
+
+	public static int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Sets the minimum size of a message body to be compressed.
+	 *
+	 * @param threshold the threshold in bytes, or a negative value to disable compression
+	 */
+	public static void setThreshold(int threshold) {
+		Compression.threshold = threshold;
+	}
+
+	/**
+	 * Checks whether the given encoded message is compressed.
+	 *
+	 * @param id message id as received
+	 * @return {@code true} or {@code false}
+	 */
+	public static boolean isCompressed(byte id) {
+		return (id & FLAG) != 0;
+	}
+
+	/**
+	 * Checks whether the body of an encoded message reaches the threshold.<br>
+	 * This lets a caller which encodes into another buffer skip copying the message when it will not be compressed.
+	 *
+	 * @param size the size of the encoded message in bytes, including its message id
+	 * @return {@code true} or {@code false}
+	 */
+	public static boolean reachesThreshold(int size) {
+		int limit = threshold;
+		int bodySize = size - 1;
+		return limit >= 0 && bodySize >= limit && bodySize > 0;
+	}
+
+	/**
+	 * Compresses an encoded message if its body reaches the threshold and compression actually saves space.
+	 *
+	 * @param message encoded message, starting at its message id
+	 * @return the compressed message, or the given message if it is not compressed
+	 */
+	public static byte[] compress(byte[] message) {
+		if (!reachesThreshold(message.length)) return message;
+		int bodySize = message.length - 1;
+
+		long start = System.nanoTime();
+		Deflater deflater = DEFLATER.get();
+		deflater.reset();
+		deflater.setInput(message, 1, bodySize);
+		deflater.finish();
+
+		// give up as soon as the output is not smaller than the input
+		byte[] out = new byte[message.length];
+		out[0] = (byte) (message[0] | FLAG);
+		int size = VarInts.write(out, 1, bodySize);
+
+		while (!deflater.finished() && size < out.length) {
+			size += deflater.deflate(out, size, out.length - size);
+		}
+
+		compressTime.add(System.nanoTime() - start);
+
+		if (!deflater.finished()) {
+			incompressible.increment();
+			return message;
+		}
+
+		compressed.increment();
+		originalBytes.add(message.length);
+		compressedBytes.add(size);
+		return Arrays.copyOf(out, size);
+	}
+
+	/**
+	 * Decompresses a compressed message.
+	 *
+	 * @param frame  data which contains the message
+	 * @param offset the index of the message id
+	 * @param length the length of the compressed message
+	 * @return the decompressed message, starting at its message id
+	 * @throws IOException if the message is malformed
+	 */
+	public static byte[] decompress(byte[] frame, int offset, int length) throws IOException {
+		return decompress(frame, offset, length, MAX_DECOMPRESSED_SIZE + 1);
+	}
+
+	/**
+	 * Decompresses a compressed message which must not exceed the given size.<br>
+	 * The size is checked before anything is allocated or inflated.
+	 *
+	 * @param frame   data which contains the message
+	 * @param offset  the index of the message id
+	 * @param length  the length of the compressed message
+	 * @param maxSize the maximum size of the decompressed message in bytes, including its id
+	 * @return the decompressed message, starting at its message id
+	 * @throws IOException if the message is malformed or too large
+	 */
+	public static byte[] decompress(byte[] frame, int offset, int length, int maxSize) throws IOException {
+		long start = System.nanoTime();
+		int bodySize = VarInts.read(new DataInputStream(new ByteArrayInputStream(frame, offset + 1, length - 1)));
+
+		if (bodySize <= 0 || bodySize > MAX_DECOMPRESSED_SIZE || bodySize >= maxSize) {
+			throw new IOException("invalid decompressed size " + bodySize);
+		}
+
+		int dataOffset = offset + 1 + VarInts.size(bodySize);
+		byte[] out = new byte[bodySize + 1];
+		out[0] = (byte) (frame[offset] & ~FLAG);
+
+		Inflater inflater = INFLATER.get();
+		inflater.reset();
+		inflater.setInput(frame, dataOffset, offset + length - dataOffset);
+		int size = 0;
+
+		try {
+			while (size < bodySize) {
+				int n = inflater.inflate(out, 1 + size, bodySize - size);
+				if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) break;
+				size += n;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		}
+
+		if (size != bodySize) {
+			throw new IOException("decompressed size mismatch");
+		}
+
+		decompressed.increment();
+		decompressTime.add(System.nanoTime() - start);
+		return out;
+	}
+
+	/**
+	 * Formats the statistics which are collected so far.
+	 *
+	 * @return lines of text
+	 */
+	@NotNull
+	public static List<String> format() {
+		List<String> lines = new ArrayList<>();
+		long count = compressed.sum();
+		long original = originalBytes.sum();
+		long result = compressedBytes.sum();
+		lines.add(String.format(Locale.ROOT, "Threshold: %s", threshold < 0 ? "disabled" : threshold + " bytes"));
+		lines.add(String.format(Locale.ROOT, "Compressed: %d, incompressible: %d, ratio %.2f (%d -> %d bytes)",
+				count, incompressible.sum(), original == 0 ? 1.0 : (double) result / original, original, result));
+		long attempts = count + incompressible.sum();
+		lines.add(String.format(Locale.ROOT, "Compress time: total %.1fms, mean %.1fus",
+				compressTime.sum() / 1e6, attempts == 0 ? 0.0 : compressTime.sum() / 1e3 / attempts));
+		lines.add(String.format(Locale.ROOT, "Decompressed: %d, total %.1fms",
+				decompressed.sum(), decompressTime.sum() / 1e6));
+		return lines;
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.networking;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import dev.phomc.tensai.networking.message.Message;
+import dev.phomc.tensai.networking.message.s2c.MessageBundle;
+import dev.phomc.tensai.util.ByteArrayOutput;
+
+/**
+ * Collects outbound messages of a client during a tick, so that they can be flushed as a single packet.<br>
+ * Messages are encoded as soon as they are added, therefore they can be modified or reused afterwards. They are
+ * written straight into the entries of a {@link MessageBundle}, whose buffer is reused between flushes. This class is
+ * thread-safe.
+ */
+public class OutboundQueue {
+	/**
+	 * The maximum size of a bundle, which is the vanilla limit of client-bound custom payloads.
+	 */
+	public static final int MAX_BUNDLE_SIZE = 1 << 20;
+
+	// larger buffers are dropped after a flush, so that a burst does not keep memory for the whole connection
+	private static final int RETAINED_CAPACITY = 1 << 16;
+
+	// guarded by this: entries of a bundle in the order they are added, the end and the message length of each are
+	// recorded below
+	private ByteArrayOutput entries = new ByteArrayOutput(256);
+	private DataOutputStream entryOutput = new DataOutputStream(entries);
+	// the message being added, since its length is written before it
+	private ByteArrayOutput scratch = new ByteArrayOutput(256);
+	private DataOutputStream scratchOutput = new DataOutputStream(scratch);
+	private Channel[] channels = new Channel[8];
+	private int[] ends = new int[8];
+	private int[] lengths = new int[8];
+	private int count;
+
+	public synchronized void add(@NotNull Channel channel, @NotNull Message message) {
+		scratch.reset();
+
+		try {
+			message.writeTo(scratchOutput);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		append(channel, scratch.array(), 0, scratch.size());
+	}
+
+	/**
+	 * Encodes a message with the given string table and queues it.<br>
+	 * Encoding and queueing happen atomically, so that messages are flushed in the order they were encoded.
+	 *
+	 * @param channel channel
+	 * @param message message
+	 * @param strings the string table of the connection, or {@code null} if it is not agreed
+	 */
+	public void add(@NotNull Channel channel, @NotNull Message message, @Nullable StringTable strings) {
+		if (strings == null) {
+			add(channel, message);
+			return;
+		}
+
+		synchronized (strings) {
+			synchronized (this) {
+				scratch.reset();
+
+				try {
+					strings.encode(message, scratchOutput);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+
+				append(channel, scratch.array(), 0, scratch.size());
+			}
+		}
+	}
+
+	private void append(Channel channel, byte[] data, int offset, int length) {
+		if (count == channels.length) {
+			channels = Arrays.copyOf(channels, count * 2);
+			ends = Arrays.copyOf(ends, count * 2);
+			lengths = Arrays.copyOf(lengths, count * 2);
+		}
+
+		try {
+			MessageBundle.writeEntry(entryOutput, channel.getId(), data, offset, length);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		channels[count] = channel;
+		ends[count] = entries.size();
+		lengths[count] = length;
+		count++;
+	}
+
+	public synchronized boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * Moves all pending messages into the given queue.
+	 *
+	 * @param other the queue
+	 */
+	public void transferTo(@NotNull OutboundQueue other) {
+		synchronized (this) {
+			synchronized (other) {
+				byte[] data = entries.array();
+
+				for (int i = 0; i < count; i++) {
+					other.append(channels[i], data, ends[i] - lengths[i], lengths[i]);
+				}
+			}
+
+			clear();
+		}
+	}
+
+	/**
+	 * Sends all pending messages.<br>
+	 * A single message is sent as is, while several messages are sent as one or more {@link MessageBundle}s.
+	 *
+	 * @param sink the packet sender
+	 */
+	public void flush(@NotNull Sink sink) {
+		List<MessageBundle.Entry> packets = new ArrayList<>(1);
+
+		// packets are only copied under the lock, other threads can add messages while they are sent
+		synchronized (this) {
+			if (count == 0) return;
+			int first = 0;
+			// message id and the count take at most 6 bytes
+			int size = 6;
+
+			for (int i = 0; i < count; i++) {
+				int entrySize = ends[i] - (i == 0 ? 0 : ends[i - 1]);
+
+				if (i > first && size + entrySize > MAX_BUNDLE_SIZE) {
+					packets.add(pack(first, i));
+					first = i;
+					size = 6;
+				}
+
+				size += entrySize;
+			}
+
+			packets.add(pack(first, count));
+			clear();
+		}
+
+		for (MessageBundle.Entry packet : packets) {
+			sink.send(packet.getChannel(), packet.getData());
+		}
+	}
+
+	private MessageBundle.Entry pack(int from, int to) {
+		byte[] data = entries.array();
+
+		if (to - from == 1) {
+			return new MessageBundle.Entry(channels[from], Arrays.copyOfRange(data, ends[from] - lengths[from], ends[from]));
+		}
+
+		int start = from == 0 ? 0 : ends[from - 1];
+		return new MessageBundle.Entry(Channel.BUNDLE, MessageBundle.pack(to - from, data, start, ends[to - 1] - start));
+	}
+
+	private void clear() {
+		Arrays.fill(channels, 0, count, null);
+		count = 0;
+
+		if (entries.capacity() > RETAINED_CAPACITY) {
+			entries = new ByteArrayOutput(256);
+			entryOutput = new DataOutputStream(entries);
+		} else {
+			entries.reset();
+		}
+
+		if (scratch.capacity() > RETAINED_CAPACITY) {
+			scratch = new ByteArrayOutput(256);
+			scratchOutput = new DataOutputStream(scratch);
+		}
+	}
+
+	public interface Sink {
+		/**
+		 * Sends an encoded message.
+		 *
+		 * @param channel channel
+		 * @param data    message data
+		 */
+		void send(Channel channel, byte[] data);
+	}
+}
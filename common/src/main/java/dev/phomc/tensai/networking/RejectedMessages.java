@@ -0,0 +1,112 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.networking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Counts received messages which were dropped before reaching any listener.<br>
+ * This class is thread-safe.
+ */
+public final class RejectedMessages {
+	private static final LongAdder[] COUNTERS = new LongAdder[Reason.values().length];
+
+	static {
+		for (int i = 0; i < COUNTERS.length; i++) {
+			COUNTERS[i] = new LongAdder();
+		}
+	}
+
+	private RejectedMessages() {
+	}
+
+	/**
+	 * Counts a rejected message.
+	 *
+	 * @param reason the reason
+	 */
+	public static void count(@NotNull Reason reason) {
+		COUNTERS[reason.ordinal()].increment();
+	}
+
+	/**
+	 * Gets the number of messages which were rejected for the given reason.
+	 *
+	 * @param reason the reason
+	 * @return number of messages
+	 */
+	public static long get(@NotNull Reason reason) {
+		return COUNTERS[reason.ordinal()].sum();
+	}
+
+	/**
+	 * Formats the counters.
+	 *
+	 * @return lines of text
+	 */
+	@NotNull
+	public static List<String> format() {
+		List<String> lines = new ArrayList<>();
+
+		for (Reason reason : Reason.values()) {
+			lines.add(String.format(Locale.ROOT, "%s: %d", reason.getDescription(), get(reason)));
+		}
+
+		return lines;
+	}
+
+	public enum Reason {
+		/**
+		 * Nobody subscribes to the channel or the message id.
+		 */
+		UNKNOWN("Unknown channel or message id"),
+
+		/**
+		 * The message is larger than the maximum size of its type.
+		 */
+		OVERSIZED("Oversized"),
+
+		/**
+		 * The message could not be decompressed or decoded.
+		 */
+		MALFORMED("Malformed");
+
+		private final String description;
+
+		Reason(String description) {
+			this.description = description;
+		}
+
+		@NotNull
+		public String getDescription() {
+			return description;
+		}
+	}
+}
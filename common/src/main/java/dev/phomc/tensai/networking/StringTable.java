@@ -0,0 +1,295 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.networking;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+
+import dev.phomc.tensai.networking.message.Message;
+import dev.phomc.tensai.util.ByteArrayOutput;
+import dev.phomc.tensai.util.VarInts;
+
+/**
+ * A per-connection table of strings which are repeated across messages, e.g: animation types or property names.<br>
+ * The first use of a string defines it at a slot, while later uses only send the slot id. The sender evicts the least
+ * recently used string once all {@link #CAPACITY} slots are taken, and the receiver simply overwrites the slot. Both
+ * sides start with an empty table on every connection.<br>
+ * Since definitions and references must be received in the order they are encoded, a table must only be used where
+ * messages are sent in encoding order, e.g: when they are queued.
+ * Messages which are encoded with a table have {@link #FLAG} set in their message id, followed by the definitions of
+ * the message. The receiver must store them with {@link #readDefinitions(DataInput)} before it validates or dispatches
+ * the message, so that the table stays in sync even if the message is dropped.
+ */
+public class StringTable {
+	/**
+	 * The bit of the message id which marks a message encoded with a string table.
+	 */
+	public static final int FLAG = 0x40;
+
+	/**
+	 * The number of slots, which is part of the protocol.
+	 */
+	public static final int CAPACITY = 256;
+
+	/**
+	 * Strings which are longer than this are always sent inline.
+	 */
+	public static final int MAX_LENGTH = 256;
+
+	private static final int TAG_INLINE = 0;
+
+	// sending side, in access order
+	private final LinkedHashMap<String, Integer> ids = new LinkedHashMap<>(CAPACITY, 0.75f, true);
+	// receiving side
+	private final String[] slots = new String[CAPACITY];
+	// the body of the message being encoded, reused by the sending side
+	private final ByteArrayOutput body = new ByteArrayOutput();
+
+	/**
+	 * Writes a string, using the table of the given output if any.
+	 *
+	 * @param stream output
+	 * @param value  the string
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static void writeString(DataOutput stream, @NotNull String value) throws IOException {
+		if (stream instanceof Output) {
+			((Output) stream).writeEntry(value);
+		} else {
+			stream.writeUTF(value);
+		}
+	}
+
+	/**
+	 * Reads a string, using the table of the given input if any.
+	 *
+	 * @param stream input
+	 * @return the string
+	 * @throws IOException if an I/O error occurs or the string refers to an unknown slot
+	 */
+	@NotNull
+	public static String readString(DataInput stream) throws IOException {
+		if (stream instanceof Input) {
+			return ((Input) stream).readEntry();
+		}
+
+		return stream.readUTF();
+	}
+
+	/**
+	 * Encodes a message with this table.<br>
+	 * The caller must send encoded messages in the same order as they are encoded.
+	 *
+	 * @param message message
+	 * @return encoded message, starting at its message id
+	 */
+	public byte[] encode(@NotNull Message message) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try {
+			encode(message, new DataOutputStream(bytes));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Encodes a message with this table into the given output.<br>
+	 * The caller must send encoded messages in the same order as they are encoded.
+	 *
+	 * @param message message
+	 * @param out     output, which receives the encoded message starting at its message id
+	 * @throws IOException if an I/O error occurs
+	 */
+	public synchronized void encode(@NotNull Message message, @NotNull DataOutputStream out) throws IOException {
+		body.reset();
+		Output stream = new Output(body);
+		message.writeTo(stream);
+		byte[] data = body.array();
+
+		if (!stream.used) {
+			out.write(data, 0, body.size());
+			return;
+		}
+
+		// the definitions are moved in front of the body
+		out.writeByte(data[0] | FLAG);
+		VarInts.write(out, stream.definitionCount);
+		stream.definitions.writeTo(out);
+		out.write(data, 1, body.size() - 1);
+	}
+
+	/**
+	 * Reads the definitions of a received message which is encoded with this table, and stores them.<br>
+	 * This must be done for every received message with {@link #FLAG}, including messages which are dropped
+	 * afterwards, since the sender considers the definitions received.
+	 *
+	 * @param stream input, right after the message id
+	 * @throws IOException if an I/O error occurs or a definition is invalid
+	 */
+	public void readDefinitions(@NotNull DataInput stream) throws IOException {
+		int count = VarInts.read(stream);
+
+		if (count < 0 || count > CAPACITY) {
+			throw new IOException("invalid definition count " + count);
+		}
+
+		synchronized (slots) {
+			for (int i = 0; i < count; i++) {
+				int id = VarInts.read(stream);
+
+				if (id < 0 || id >= CAPACITY) {
+					throw new IOException("string slot out of range: " + id);
+				}
+
+				slots[id] = stream.readUTF();
+			}
+		}
+	}
+
+	/**
+	 * Wraps the input of a received message which is encoded with this table.<br>
+	 * The caller must read the definitions with {@link #readDefinitions(DataInput)} and replace the message id with
+	 * one without {@link #FLAG} first.
+	 *
+	 * @param stream input, starting at the message id
+	 * @return the wrapped input
+	 */
+	@NotNull
+	public DataInput wrap(@NotNull InputStream stream) {
+		return new Input(stream);
+	}
+
+	/**
+	 * Clears both sides of this table.
+	 */
+	public synchronized void reset() {
+		ids.clear();
+
+		synchronized (slots) {
+			Arrays.fill(slots, null);
+		}
+	}
+
+	private void write(Output stream, String value) throws IOException {
+		Integer id = value.length() > MAX_LENGTH ? null : ids.get(value);
+
+		if (id == null && value.length() <= MAX_LENGTH) {
+			id = allocate(stream.pinned);
+
+			if (id != null) {
+				ids.put(value, id);
+				VarInts.write(stream.definitionOutput, id);
+				stream.definitionOutput.writeUTF(value);
+				stream.definitionCount++;
+			}
+		}
+
+		if (id == null) {
+			VarInts.write(stream, TAG_INLINE);
+			stream.writeUTF(value);
+			return;
+		}
+
+		stream.pinned[id] = true;
+		VarInts.write(stream, id + 1);
+	}
+
+	private Integer allocate(boolean[] pinned) {
+		if (ids.size() < CAPACITY) return ids.size();
+		Iterator<Map.Entry<String, Integer>> it = ids.entrySet().iterator();
+
+		// slots used by the message being encoded are the most recent ones, and must not change within the message
+		while (it.hasNext()) {
+			int id = it.next().getValue();
+
+			if (!pinned[id]) {
+				it.remove();
+				return id;
+			}
+		}
+
+		return null;
+	}
+
+	private String read(DataInput stream) throws IOException {
+		int tag = VarInts.read(stream);
+		if (tag == TAG_INLINE) return stream.readUTF();
+		int id = tag - 1;
+
+		if (id < 0 || id >= CAPACITY) {
+			throw new IOException("string slot out of range: " + id);
+		}
+
+		synchronized (slots) {
+			if (slots[id] == null) {
+				throw new IOException("undefined string slot: " + id);
+			}
+
+			return slots[id];
+		}
+	}
+
+	private final class Output extends DataOutputStream {
+		private final ByteArrayOutputStream definitions = new ByteArrayOutputStream();
+		private final DataOutputStream definitionOutput = new DataOutputStream(definitions);
+		private final boolean[] pinned = new boolean[CAPACITY];
+		private int definitionCount;
+		private boolean used;
+
+		private Output(OutputStream out) {
+			super(out);
+		}
+
+		private void writeEntry(String value) throws IOException {
+			used = true;
+			StringTable.this.write(this, value);
+		}
+	}
+
+	private final class Input extends DataInputStream {
+		private Input(InputStream in) {
+			super(in);
+		}
+
+		private String readEntry() throws IOException {
+			return StringTable.this.read(this);
+		}
+	}
+}
@@ -24,24 +24,36 @@
 
 package dev.phomc.tensai.networking;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.Arrays;
 
 import org.jetbrains.annotations.NotNull;
 
+import dev.phomc.tensai.networking.message.Message;
+import dev.phomc.tensai.networking.message.MessageDescriptor;
+
 /**
- * A subscriber is one who listens to incoming messages.
+ * A subscriber is one who listens to incoming messages.<br>
+ * Each type of message is decoded exactly once, then passed to all of its listeners in the order they subscribed.
+ * The decoded message is shared between them.
  *
  * @param <T> Represents the sender. It is different per platforms.
  */
 public abstract class Subscriber<T> {
-	protected final Map<Byte, Callback<T>> subscription = new HashMap<>();
+	// indexed by message id
+	private final Route<?, T>[] routes = newRoutes();
 	private final Channel channel;
 
 	public Subscriber(Channel channel) {
 		this.channel = channel;
 	}
 
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static <T> Route<?, T>[] newRoutes() {
+		return new Route[MessageDescriptor.MAX_ID + 1];
+	}
+
 	@NotNull
 	public Channel getChannel() {
 		return channel;
@@ -53,24 +65,121 @@ public Channel getChannel() {
 	public abstract void onInitialize();
 
 	/**
-	 * Subscribe a specific type of message.
+	 * Subscribe a specific type of message.<br>
+	 * A type can have any number of listeners, which are called in the order they subscribed.
+	 *
+	 * @param type     message type
+	 * @param listener listener
+	 * @param <M>      message class
+	 * @throws IllegalArgumentException if the id of the given type is already used by another type
+	 */
+	public synchronized <M extends Message> void subscribe(@NotNull MessageDescriptor<M> type, @NotNull Listener<? super M, T> listener) {
+		@SuppressWarnings("unchecked")
+		Route<M, T> route = (Route<M, T>) routes[type.getId()];
+
+		if (route == null) {
+			route = new Route<>(type);
+			routes[type.getId()] = route;
+		} else if (route.type != type) {
+			throw new IllegalArgumentException(String.format("Message id %d is already used at channel %s", type.getId(), channel));
+		}
+
+		route.add(listener);
+	}
+
+	/**
+	 * Gets the maximum size of a received message.
+	 *
+	 * @param id message id as received, flags are ignored
+	 * @return the maximum size in bytes, or {@code 0} if nobody subscribes to the message
+	 */
+	public int getMaxSize(byte id) {
+		Route<?, T> route = routes[id & MessageDescriptor.MAX_ID];
+		return route == null ? 0 : route.type.getMaxSize();
+	}
+
+	/**
+	 * Checks a received message before it is copied, decompressed or decoded. Rejected messages are counted by
+	 * {@link RejectedMessages}.<br>
+	 * Since a message is only compressed if it gets smaller, a compressed message which is accepted may still
+	 * decompress to more than the maximum size. The maximum size must then be enforced while decompressing.
 	 *
-	 * @param id       message type
-	 * @param callback callback
+	 * @param id   message id as received, flags are ignored
+	 * @param size the size of the message as received
+	 * @return {@code true} if the message should be processed, or {@code false} if it was rejected
 	 */
-	public void subscribe(byte id, Callback<T> callback) {
-		subscription.put(id, callback);
+	public boolean accept(byte id, int size) {
+		int maxSize = getMaxSize(id);
+
+		if (maxSize == 0) {
+			RejectedMessages.count(RejectedMessages.Reason.UNKNOWN);
+			return false;
+		}
+
+		if (size > maxSize) {
+			RejectedMessages.count(RejectedMessages.Reason.OVERSIZED);
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Decodes a received message and passes it to its listeners.<br>
+	 * The input is only valid during this call.
+	 *
+	 * @param id     message id, without flags
+	 * @param data   message data, starting at the message id
+	 * @param sender message sender
+	 * @return {@code false} if nobody subscribes to the message
+	 * @throws IOException if the message is malformed
+	 */
+	public boolean dispatch(byte id, @NotNull DataInput data, T sender) throws IOException {
+		if (id < 0 || id > MessageDescriptor.MAX_ID) return false;
+		Route<?, T> route = routes[id];
+		if (route == null) return false;
+		route.dispatch(data, sender);
+		return true;
 	}
 
-	public interface Callback<T> {
+	public interface Listener<M extends Message, T> {
 		/**
-		 * This callback triggers when a message is received.<br>
+		 * This listener triggers when a message is received.<br>
 		 * <b>Note:</b> It may be called asynchronously. In some platforms such as Bukkit, it is unsafe to do
 		 * synchronous operations inside this method's implementation.
 		 *
-		 * @param data message data
-		 * @param sender message sender
+		 * @param message the decoded message
+		 * @param sender  message sender
 		 */
-		void call(byte[] data, T sender);
+		void onMessage(M message, T sender);
+	}
+
+	private static final class Route<M extends Message, T> {
+		private final MessageDescriptor<M> type;
+		// copied on write, since dispatching is much more frequent than subscribing
+		private volatile Listener<? super M, T>[] listeners = newListeners(0);
+
+		private Route(MessageDescriptor<M> type) {
+			this.type = type;
+		}
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private static <M extends Message, T> Listener<? super M, T>[] newListeners(int size) {
+			return new Listener[size];
+		}
+
+		private void add(Listener<? super M, T> listener) {
+			Listener<? super M, T>[] copy = Arrays.copyOf(listeners, listeners.length + 1);
+			copy[copy.length - 1] = listener;
+			listeners = copy;
+		}
+
+		private void dispatch(DataInput data, T sender) throws IOException {
+			M message = type.decode(data);
+
+			for (Listener<? super M, T> listener : listeners) {
+				listener.onMessage(message, sender);
+			}
+		}
 	}
 }
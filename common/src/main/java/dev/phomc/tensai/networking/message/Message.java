@@ -56,22 +56,42 @@ public void read(DataInput stream) throws IOException {
 		throw new UnsupportedOperationException();
 	}
 
+	/**
+	 * Writes the id and the content of this message to the given output.<br>
+	 * This allows platforms to encode a message directly into their network buffers.
+	 *
+	 * @param stream output
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void writeTo(DataOutput stream) throws IOException {
+		stream.writeByte(id);
+		write(stream);
+	}
+
+	/**
+	 * Reads the id and the content of this message from the given input.<br>
+	 * This allows platforms to decode a message directly from their network buffers.
+	 *
+	 * @param stream input
+	 * @throws IOException if an I/O error occurs or the message id does not match
+	 */
+	public void readFrom(DataInput stream) throws IOException {
+		if (stream.readByte() != id) {
+			throw new IOException("unexpected message id");
+		}
+
+		read(stream);
+	}
+
 	/**
 	 * Unpacks the given data and write out to this message.
 	 *
 	 * @param bytes data
 	 */
 	public void unpack(byte[] bytes) {
-		ByteArrayInputStream stream = new ByteArrayInputStream(bytes);
-		DataInputStream wrapped = new DataInputStream(stream);
-
 		try {
-			if (wrapped.readByte() != id) {
-				throw new IllegalAccessException("unexpected message id");
-			}
-
-			read(wrapped);
-		} catch (IOException | IllegalAccessException e) {
+			readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
@@ -86,8 +106,7 @@ public byte[] pack() {
 		DataOutputStream wrapped = new DataOutputStream(stream);
 
 		try {
-			wrapped.writeByte(id);
-			write(wrapped);
+			writeTo(wrapped);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -0,0 +1,106 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.networking.message;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Describes a type of message which can be received: its id, its maximum size and how to decode it.<br>
+ * Received messages which are larger than the maximum size are dropped before they are decompressed or decoded.
+ *
+ * @param <M> message class
+ */
+public final class MessageDescriptor<M extends Message> {
+	/**
+	 * The highest message id. Higher bits of the id byte are used as flags on the wire.
+	 */
+	public static final int MAX_ID = 0x3F;
+
+	/**
+	 * The default maximum size of a message, which is the largest plugin message a vanilla client can send.
+	 */
+	public static final int DEFAULT_MAX_SIZE = Short.MAX_VALUE;
+
+	private final byte id;
+	private final Supplier<M> factory;
+	private final int maxSize;
+
+	/**
+	 * Constructs a descriptor with {@link #DEFAULT_MAX_SIZE}.
+	 *
+	 * @param id      message id, see {@link MessageType}
+	 * @param factory creates an empty message to read into
+	 */
+	public MessageDescriptor(byte id, @NotNull Supplier<M> factory) {
+		this(id, factory, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Constructs a descriptor.
+	 *
+	 * @param id      message id, see {@link MessageType}
+	 * @param factory creates an empty message to read into
+	 * @param maxSize the maximum size of an encoded message in bytes, including its id
+	 */
+	public MessageDescriptor(byte id, @NotNull Supplier<M> factory, int maxSize) {
+		if (id < 0 || id > MAX_ID) {
+			throw new IllegalArgumentException(String.format("Message id %d is out of range", id));
+		}
+
+		if (maxSize < 1) {
+			throw new IllegalArgumentException(String.format("Invalid maximum size %d", maxSize));
+		}
+
+		this.id = id;
+		this.factory = factory;
+		this.maxSize = maxSize;
+	}
+
+	public byte getId() {
+		return id;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Decodes a message.
+	 *
+	 * @param stream input, starting at the message id
+	 * @return the message
+	 * @throws IOException if the message is malformed
+	 */
+	@NotNull
+	public M decode(@NotNull DataInput stream) throws IOException {
+		M message = factory.get();
+		message.readFrom(stream);
+		return message;
+	}
+}
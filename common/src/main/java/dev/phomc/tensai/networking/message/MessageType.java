@@ -29,7 +29,15 @@ public class MessageType {
 	public static final byte KEYBINDING_REGISTER = 1;
 	public static final byte KEYBINDING_REGISTER_RESPONSE = 2;
 	public static final byte KEYBINDING_STATE_UPDATE = 3;
+	public static final byte KEYBINDING_STATE_UPDATE_COMPACT = 4;
 
 	// VFX
 	public static final byte VFX_ANIMATION_PLAY = 1;
+
+	// Handshake
+	public static final byte HANDSHAKE_REQUEST = 1;
+	public static final byte HANDSHAKE_RESPONSE = 2;
+
+	// Bundle
+	public static final byte BUNDLE = 1;
 }
@@ -0,0 +1,101 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.networking.message.c2s;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+import dev.phomc.tensai.keybinding.Key;
+import dev.phomc.tensai.keybinding.KeyState;
+import dev.phomc.tensai.networking.message.MessageDescriptor;
+import dev.phomc.tensai.networking.message.MessageType;
+import dev.phomc.tensai.util.VarInts;
+
+/**
+ * A compact encoding of {@link KeyBindingStateUpdate} which is used once
+ * {@link dev.phomc.tensai.networking.Capabilities.Feature#COMPACT_KEY_STATE} is agreed.<br>
+ * Updated keys are sent as a bitmap over {@link Key#ordinal()}, trimmed to the bytes which have any bit set. Each
+ * state then takes a single byte in most cases: the low nibble holds the dirty flags and the pressed flag, and the
+ * high nibble holds the number of presses (or {@code 15} followed by a VarInt of the remainder).<br>
+ * Since key ordinals are part of the format, both sides must share the same {@link Key} enumeration.
+ */
+public class CompactKeyBindingStateUpdate extends KeyBindingStateUpdate {
+	// id, two VarInts, the full bitmap and at most 6 bytes per key
+	public static final MessageDescriptor<CompactKeyBindingStateUpdate> TYPE = new MessageDescriptor<>(MessageType.KEYBINDING_STATE_UPDATE_COMPACT, CompactKeyBindingStateUpdate::new, 11 + ((Key.values().length + 7) >> 3) + Key.values().length * 6);
+
+	static final int PRESSED_FLAG = 0x04;
+	static final int DIRTY_MASK = 0x03;
+	static final int TIMES_PRESSED_SHIFT = 4;
+	static final int TIMES_PRESSED_OVERFLOW = 0x0F;
+
+	public CompactKeyBindingStateUpdate() {
+		this(new EnumMap<>(Key.class));
+	}
+
+	public CompactKeyBindingStateUpdate(Map<Key, KeyState> states) {
+		super(MessageType.KEYBINDING_STATE_UPDATE_COMPACT, states);
+	}
+
+	@Override
+	public void write(DataOutput stream) throws IOException {
+		byte[] bitmap = new byte[(Key.values().length + 7) >> 3];
+		int first = bitmap.length;
+		int last = -1;
+
+		for (Key key : getStates().keySet()) {
+			int index = key.ordinal() >> 3;
+			bitmap[index] |= 1 << (key.ordinal() & 7);
+			first = Math.min(first, index);
+			last = Math.max(last, index);
+		}
+
+		if (last < 0) {
+			VarInts.write(stream, 0);
+			VarInts.write(stream, 0);
+			return;
+		}
+
+		VarInts.write(stream, first);
+		VarInts.write(stream, last - first + 1);
+		stream.write(bitmap, first, last - first + 1);
+		Key[] keys = Key.values();
+
+		// states follow in ordinal order, which is also the iteration order of the bitmap
+		for (int i = first << 3; i < (last + 1) << 3 && i < keys.length; i++) {
+			if ((bitmap[i >> 3] & (1 << (i & 7))) == 0) continue;
+			KeyState state = getStates().get(keys[i]);
+			int timesPressed = state.getTimesPressed();
+			int packed = (state.getDirty() & DIRTY_MASK) | (state.isPressed() ? PRESSED_FLAG : 0);
+			packed |= Math.min(timesPressed, TIMES_PRESSED_OVERFLOW) << TIMES_PRESSED_SHIFT;
+			stream.writeByte(packed);
+
+			if (timesPressed >= TIMES_PRESSED_OVERFLOW) {
+				VarInts.write(stream, timesPressed - TIMES_PRESSED_OVERFLOW);
+			}
+		}
+	}
+}
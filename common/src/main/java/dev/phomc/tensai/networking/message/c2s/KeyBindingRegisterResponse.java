@@ -33,9 +33,13 @@
 import dev.phomc.tensai.keybinding.Key;
 import dev.phomc.tensai.keybinding.KeyBinding;
 import dev.phomc.tensai.networking.message.Message;
+import dev.phomc.tensai.networking.message.MessageDescriptor;
 import dev.phomc.tensai.networking.message.MessageType;
 
 public class KeyBindingRegisterResponse extends Message {
+	// id, count and 5 bytes per key
+	public static final MessageDescriptor<KeyBindingRegisterResponse> TYPE = new MessageDescriptor<>(MessageType.KEYBINDING_REGISTER_RESPONSE, KeyBindingRegisterResponse::new, 5 + Key.values().length * 5);
+
 	private final Map<Key, KeyBinding.RegisterStatus> status;
 
 	public KeyBindingRegisterResponse() {
@@ -64,10 +68,17 @@ public void write(DataOutput stream) throws IOException {
 	@Override
 	public void read(DataInput stream) throws IOException {
 		int size = stream.readInt();
+		KeyBinding.RegisterStatus[] statuses = KeyBinding.RegisterStatus.values();
+
+		if (size < 0 || size > Key.values().length) {
+			throw new IOException("invalid key count " + size);
+		}
 
 		for (int i = 0; i < size; i++) {
 			Key key = Key.lookup(stream.readInt());
-			KeyBinding.RegisterStatus st = KeyBinding.RegisterStatus.values()[stream.readByte()];
+			int ordinal = stream.readUnsignedByte();
+			if (ordinal >= statuses.length) throw new IOException("unknown status " + ordinal);
+			KeyBinding.RegisterStatus st = statuses[ordinal];
 
 			if (key != null) {
 				status.put(key, st);
@@ -33,9 +33,13 @@
 import dev.phomc.tensai.keybinding.Key;
 import dev.phomc.tensai.keybinding.KeyState;
 import dev.phomc.tensai.networking.message.Message;
+import dev.phomc.tensai.networking.message.MessageDescriptor;
 import dev.phomc.tensai.networking.message.MessageType;
 
 public class KeyBindingStateUpdate extends Message {
+	// id, count and 8 bytes per key
+	public static final MessageDescriptor<KeyBindingStateUpdate> TYPE = new MessageDescriptor<>(MessageType.KEYBINDING_STATE_UPDATE, KeyBindingStateUpdate::new, 5 + Key.values().length * 8);
+
 	private final Map<Key, KeyState> states;
 
 	public KeyBindingStateUpdate() {
@@ -43,7 +47,11 @@ public KeyBindingStateUpdate() {
 	}
 
 	public KeyBindingStateUpdate(Map<Key, KeyState> states) {
-		super(MessageType.KEYBINDING_STATE_UPDATE);
+		this(MessageType.KEYBINDING_STATE_UPDATE, states);
+	}
+
+	protected KeyBindingStateUpdate(byte id, Map<Key, KeyState> states) {
+		super(id);
 		this.states = states;
 	}
 
@@ -65,17 +73,12 @@ public void write(DataOutput stream) throws IOException {
 
 	@Override
 	public void read(DataInput stream) throws IOException {
-		int size = stream.readInt();
-
-		for (int i = 0; i < size; i++) {
-			Key key = Key.lookup(stream.readInt());
-			short timesPressed = stream.readShort();
-			boolean pressing = stream.readBoolean();
-			byte dirty = stream.readByte();
+		// both formats are decoded by the view
+		KeyBindingStateView view = new KeyBindingStateView(id);
+		view.read(stream);
 
-			if (key != null) {
-				states.put(key, new KeyState(timesPressed, pressing, dirty));
-			}
+		while (view.next()) {
+			states.put(view.getKey(), new KeyState(view.getTimesPressed(), view.isPressed(), view.getDirty()));
 		}
 	}
 }
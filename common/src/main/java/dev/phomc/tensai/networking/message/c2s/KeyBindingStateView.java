@@ -0,0 +1,187 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.networking.message.c2s;
+
+import java.io.DataInput;
+import java.io.IOException;
+
+import org.jetbrains.annotations.NotNull;
+
+import dev.phomc.tensai.keybinding.Key;
+import dev.phomc.tensai.networking.message.Message;
+import dev.phomc.tensai.networking.message.MessageDescriptor;
+import dev.phomc.tensai.networking.message.MessageType;
+import dev.phomc.tensai.util.VarInts;
+
+/**
+ * A read-only view of a received {@link KeyBindingStateUpdate} or {@link CompactKeyBindingStateUpdate}.<br>
+ * Entries are decoded into primitive arrays which are reused between messages, so that no object is created per key.
+ * They are iterated by cursor:
+ * <pre>{@code
+ * 	view.rewind();
+ *
+ * 	while (view.next()) {
+ * 		handle(view.getKey(), view.getTimesPressed(), view.isPressed(), view.getDirty());
+ * 	}
+ * }</pre>
+ * Each thread reuses one view per message type, hence a view is only valid until its listener returns and must not be
+ * kept. Since the view is shared by all listeners of a message, it should be rewound before iterating.
+ */
+public final class KeyBindingStateView extends Message {
+	private static final Key[] KEYS = Key.values();
+	private static final ThreadLocal<KeyBindingStateView> PLAIN = ThreadLocal.withInitial(() -> new KeyBindingStateView(MessageType.KEYBINDING_STATE_UPDATE));
+	private static final ThreadLocal<KeyBindingStateView> COMPACT = ThreadLocal.withInitial(() -> new KeyBindingStateView(MessageType.KEYBINDING_STATE_UPDATE_COMPACT));
+
+	public static final MessageDescriptor<KeyBindingStateView> TYPE = new MessageDescriptor<>(MessageType.KEYBINDING_STATE_UPDATE, PLAIN::get, KeyBindingStateUpdate.TYPE.getMaxSize());
+	public static final MessageDescriptor<KeyBindingStateView> COMPACT_TYPE = new MessageDescriptor<>(MessageType.KEYBINDING_STATE_UPDATE_COMPACT, COMPACT::get, CompactKeyBindingStateUpdate.TYPE.getMaxSize());
+
+	private final int[] ordinals = new int[KEYS.length];
+	private final int[] timesPressed = new int[KEYS.length];
+	private final boolean[] pressed = new boolean[KEYS.length];
+	private final byte[] dirty = new byte[KEYS.length];
+	private final byte[] bitmap = new byte[(KEYS.length + 7) >> 3];
+	private int size;
+	private int cursor = -1;
+
+	/**
+	 * Constructs an empty view.
+	 *
+	 * @param id either {@link MessageType#KEYBINDING_STATE_UPDATE} or
+	 *           {@link MessageType#KEYBINDING_STATE_UPDATE_COMPACT}
+	 */
+	public KeyBindingStateView(byte id) {
+		super(id);
+	}
+
+	/**
+	 * Gets the number of entries.
+	 *
+	 * @return number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Moves the cursor before the first entry.
+	 */
+	public void rewind() {
+		cursor = -1;
+	}
+
+	/**
+	 * Moves the cursor to the next entry.
+	 *
+	 * @return {@code false} if there is no more entry
+	 */
+	public boolean next() {
+		if (cursor >= size) return false;
+		return ++cursor < size;
+	}
+
+	@NotNull
+	public Key getKey() {
+		return KEYS[ordinals[checkCursor()]];
+	}
+
+	public int getTimesPressed() {
+		return timesPressed[checkCursor()];
+	}
+
+	public boolean isPressed() {
+		return pressed[checkCursor()];
+	}
+
+	public byte getDirty() {
+		return dirty[checkCursor()];
+	}
+
+	private int checkCursor() {
+		if (cursor < 0 || cursor >= size) throw new IllegalStateException("cursor is not at an entry");
+		return cursor;
+	}
+
+	@Override
+	public void read(DataInput stream) throws IOException {
+		size = 0;
+		cursor = -1;
+
+		if (id == MessageType.KEYBINDING_STATE_UPDATE_COMPACT) {
+			readCompact(stream);
+		} else {
+			readPlain(stream);
+		}
+	}
+
+	private void readPlain(DataInput stream) throws IOException {
+		int count = stream.readInt();
+
+		// each key is sent once at most
+		if (count < 0 || count > KEYS.length) {
+			throw new IOException("invalid key count " + count);
+		}
+
+		for (int i = 0; i < count; i++) {
+			Key key = Key.lookup(stream.readInt());
+			short times = stream.readShort();
+			boolean pressing = stream.readBoolean();
+			byte flags = stream.readByte();
+			if (key != null) add(key.ordinal(), times, pressing, flags);
+		}
+	}
+
+	private void readCompact(DataInput stream) throws IOException {
+		int first = VarInts.read(stream);
+		int length = VarInts.read(stream);
+
+		if (first < 0 || length < 0 || (long) first + length > bitmap.length) {
+			throw new IOException("key bitmap out of range");
+		}
+
+		stream.readFully(bitmap, 0, length);
+
+		for (int i = 0; i < length << 3; i++) {
+			if ((bitmap[i >> 3] & (1 << (i & 7))) == 0) continue;
+			int ordinal = (first << 3) + i;
+			if (ordinal >= KEYS.length) throw new IOException("unknown key ordinal " + ordinal);
+			int packed = stream.readUnsignedByte();
+			int times = packed >>> CompactKeyBindingStateUpdate.TIMES_PRESSED_SHIFT;
+
+			if (times == CompactKeyBindingStateUpdate.TIMES_PRESSED_OVERFLOW) {
+				times += VarInts.read(stream);
+			}
+
+			add(ordinal, times, (packed & CompactKeyBindingStateUpdate.PRESSED_FLAG) != 0, (byte) (packed & CompactKeyBindingStateUpdate.DIRTY_MASK));
+		}
+	}
+
+	private void add(int ordinal, int times, boolean pressing, byte flags) {
+		ordinals[size] = ordinal;
+		timesPressed[size] = Math.min(Math.max(times, 0), Short.MAX_VALUE);
+		pressed[size] = pressing;
+		dirty[size] = flags;
+		size++;
+	}
+}
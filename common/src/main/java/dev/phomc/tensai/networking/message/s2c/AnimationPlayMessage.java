@@ -27,6 +27,7 @@
 import java.io.DataOutput;
 import java.io.IOException;
 
+import dev.phomc.tensai.networking.StringTable;
 import dev.phomc.tensai.networking.message.Message;
 import dev.phomc.tensai.networking.message.MessageType;
 import dev.phomc.tensai.server.vfx.animations.AnimationProperty;
@@ -52,7 +53,7 @@ public AnimationPlayMessage(String animationType, int playMode, double startSec,
 
 	@Override
 	public void write(DataOutput stream) throws IOException {
-		stream.writeUTF(animationType);
+		StringTable.writeString(stream, animationType);
 		stream.writeByte(playMode);
 		stream.writeDouble(startSec);
 		stream.writeDouble(durationSec);
@@ -32,10 +32,14 @@
 
 import dev.phomc.tensai.keybinding.Key;
 import dev.phomc.tensai.keybinding.KeyBinding;
+import dev.phomc.tensai.networking.StringTable;
 import dev.phomc.tensai.networking.message.Message;
+import dev.phomc.tensai.networking.message.MessageDescriptor;
 import dev.phomc.tensai.networking.message.MessageType;
 
 public class KeyBindingRegisterMessage extends Message {
+	public static final MessageDescriptor<KeyBindingRegisterMessage> TYPE = new MessageDescriptor<>(MessageType.KEYBINDING_REGISTER, KeyBindingRegisterMessage::new, 1 << 20);
+
 	private final List<KeyBinding> keymap;
 
 	public KeyBindingRegisterMessage() {
@@ -57,7 +61,7 @@ public void write(DataOutput stream) throws IOException {
 
 		for (KeyBinding entry : keymap) {
 			stream.writeInt(entry.getKey().getCode());
-			stream.writeUTF(entry.getName());
+			StringTable.writeString(stream, entry.getName());
 		}
 	}
 
@@ -65,9 +69,14 @@ public void write(DataOutput stream) throws IOException {
 	public void read(DataInput stream) throws IOException {
 		int size = stream.readInt();
 
+		// every entry takes at least five bytes
+		if (size < 0 || size > TYPE.getMaxSize() / 5) {
+			throw new IOException("invalid keybinding count " + size);
+		}
+
 		for (int i = 0; i < size; i++) {
 			Key key = Key.lookup(stream.readInt());
-			String str = stream.readUTF();
+			String str = StringTable.readString(stream);
 
 			if (key != null) {
 				keymap.add(new KeyBinding(key, str));
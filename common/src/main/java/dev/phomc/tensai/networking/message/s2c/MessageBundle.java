@@ -0,0 +1,184 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.networking.message.s2c;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.OutboundQueue;
+import dev.phomc.tensai.networking.message.Message;
+import dev.phomc.tensai.networking.message.MessageDescriptor;
+import dev.phomc.tensai.networking.message.MessageType;
+import dev.phomc.tensai.util.VarInts;
+
+/**
+ * A message which carries several encoded messages of any channel in a single packet.<br>
+ * It is only sent once {@link dev.phomc.tensai.networking.Capabilities.Feature#MESSAGE_BUNDLE} is agreed.
+ */
+public class MessageBundle extends Message {
+	public static final MessageDescriptor<MessageBundle> TYPE = new MessageDescriptor<>(MessageType.BUNDLE, MessageBundle::new, OutboundQueue.MAX_BUNDLE_SIZE);
+
+	private final List<Entry> entries;
+
+	public MessageBundle() {
+		this(new ArrayList<>());
+	}
+
+	public MessageBundle(List<Entry> entries) {
+		super(MessageType.BUNDLE);
+		this.entries = entries;
+	}
+
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Gets the number of bytes of the given entry once it is written into a bundle.
+	 *
+	 * @param entry entry
+	 * @return encoded size
+	 */
+	public static int sizeOf(@NotNull Entry entry) {
+		return VarInts.size(entry.channelId) + VarInts.size(entry.data.length) + entry.data.length;
+	}
+
+	/**
+	 * Writes an entry of a bundle.<br>
+	 * This lets a sender write entries into its own buffer as they are queued, then {@link #pack(int, byte[], int, int)
+	 * pack} them without creating an {@link Entry} per message.
+	 *
+	 * @param stream    output
+	 * @param channelId the id of the channel of the message
+	 * @param data      an array which contains the encoded message
+	 * @param offset    the index of the message id
+	 * @param length    the length of the encoded message
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static void writeEntry(DataOutput stream, int channelId, byte[] data, int offset, int length) throws IOException {
+		VarInts.write(stream, channelId);
+		VarInts.write(stream, length);
+		stream.write(data, offset, length);
+	}
+
+	/**
+	 * Packs a bundle from entries which are already written by {@link #writeEntry(DataOutput, int, byte[], int, int)}.
+	 *
+	 * @param count   the number of entries
+	 * @param entries an array which contains the entries
+	 * @param offset  the index of the first entry
+	 * @param length  the length of all entries
+	 * @return the encoded bundle, starting at its message id
+	 */
+	public static byte[] pack(int count, byte[] entries, int offset, int length) {
+		byte[] data = new byte[1 + VarInts.size(count) + length];
+		data[0] = MessageType.BUNDLE;
+		int position = VarInts.write(data, 1, count);
+		System.arraycopy(entries, offset, data, position, length);
+		return data;
+	}
+
+	@Override
+	public void write(DataOutput stream) throws IOException {
+		VarInts.write(stream, entries.size());
+
+		for (Entry entry : entries) {
+			writeEntry(stream, entry.channelId, entry.data, 0, entry.data.length);
+		}
+	}
+
+	@Override
+	public void read(DataInput stream) throws IOException {
+		int size = VarInts.read(stream);
+
+		// every entry takes at least two bytes
+		if (size < 0 || size > TYPE.getMaxSize() / 2) {
+			throw new IOException("invalid entry count " + size);
+		}
+
+		for (int i = 0; i < size; i++) {
+			int channelId = VarInts.read(stream);
+			int length = VarInts.read(stream);
+
+			if (length < 0 || length > TYPE.getMaxSize()) {
+				throw new IOException("invalid entry length " + length);
+			}
+
+			byte[] data = new byte[length];
+			stream.readFully(data);
+			// entries of unknown channels are kept, since they may still define strings of the string table
+			entries.add(new Entry(Channel.byId(channelId), channelId, data));
+		}
+	}
+
+	/**
+	 * Represents an encoded message in a bundle.
+	 */
+	public static final class Entry {
+		private final Channel channel;
+		private final int channelId;
+		private final byte[] data;
+
+		public Entry(@NotNull Channel channel, byte[] data) {
+			this(channel, channel.getId(), data);
+		}
+
+		private Entry(Channel channel, int channelId, byte[] data) {
+			this.channel = channel;
+			this.channelId = channelId;
+			this.data = data;
+		}
+
+		/**
+		 * Gets the channel of this entry.
+		 *
+		 * @return the channel, or {@code null} if a received entry belongs to a channel which is not registered
+		 */
+		@Nullable
+		public Channel getChannel() {
+			return channel;
+		}
+
+		public int getChannelId() {
+			return channelId;
+		}
+
+		/**
+		 * Gets the encoded message, starting at its message id.
+		 *
+		 * @return message data
+		 */
+		public byte[] getData() {
+			return data;
+		}
+	}
+}
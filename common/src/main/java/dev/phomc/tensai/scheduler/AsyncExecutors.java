@@ -0,0 +1,121 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.scheduler;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Factory methods of executors which are suitable for {@link Scheduler#setAsyncExecutor(java.util.concurrent.Executor)}.
+ */
+public final class AsyncExecutors {
+	public static final String DEFAULT_NAME = "tensai-async";
+	private static final int DEFAULT_QUEUE_CAPACITY = 4096;
+	// Thread#ofVirtual() and Executors#newThreadPerTaskExecutor(ThreadFactory) are available since Java 21.
+	// Look them up at runtime to keep the Java 11 baseline.
+	@Nullable
+	private static final Method[] VIRTUAL_THREAD_METHODS = lookupVirtualThreadMethods();
+
+	private AsyncExecutors() {
+	}
+
+	/**
+	 * Creates the default executor: a bounded pool whose size equals to the number of processors (at least 2).
+	 *
+	 * @return {@link AsyncTaskPool}
+	 */
+	@NotNull
+	public static AsyncTaskPool newDefaultPool() {
+		return newBoundedPool(DEFAULT_NAME, Math.max(2, Runtime.getRuntime().availableProcessors()), DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Creates a bounded, named and instrumented pool.
+	 *
+	 * @param name          the prefix of thread names
+	 * @param threads       the maximum number of threads
+	 * @param queueCapacity the maximum number of tasks waiting for a thread
+	 * @return {@link AsyncTaskPool}
+	 */
+	@NotNull
+	public static AsyncTaskPool newBoundedPool(@NotNull String name, int threads, int queueCapacity) {
+		return new AsyncTaskPool(name, threads, queueCapacity);
+	}
+
+	/**
+	 * Checks whether the current runtime supports virtual threads (Java 21 or later).
+	 *
+	 * @return {@code true} or {@code false}
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return VIRTUAL_THREAD_METHODS != null;
+	}
+
+	/**
+	 * Creates an executor which starts a new virtual thread for each task.<br>
+	 * This is suitable for blocking tasks, since virtual threads do not occupy platform threads while blocking.
+	 *
+	 * @param name the prefix of thread names
+	 * @return {@link ExecutorService}
+	 * @throws UnsupportedOperationException if virtual threads are not supported
+	 * @see #isVirtualThreadSupported()
+	 */
+	@NotNull
+	public static ExecutorService newVirtualThreadExecutor(@NotNull String name) {
+		if (VIRTUAL_THREAD_METHODS == null) {
+			throw new UnsupportedOperationException("virtual threads require Java 21 or later");
+		}
+
+		try {
+			// Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory())
+			Object builder = VIRTUAL_THREAD_METHODS[0].invoke(null);
+			builder = VIRTUAL_THREAD_METHODS[1].invoke(builder, name + "-", 1L);
+			ThreadFactory factory = (ThreadFactory) VIRTUAL_THREAD_METHODS[2].invoke(builder);
+			return (ExecutorService) VIRTUAL_THREAD_METHODS[3].invoke(null, factory);
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Nullable
+	private static Method[] lookupVirtualThreadMethods() {
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			return new Method[] {
+					Thread.class.getMethod("ofVirtual"),
+					builderClass.getMethod("name", String.class, long.class),
+					builderClass.getMethod("factory"),
+					Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+			};
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
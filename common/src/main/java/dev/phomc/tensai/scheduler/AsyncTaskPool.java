@@ -0,0 +1,129 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.scheduler;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A bounded thread pool which executes asynchronous tasks of a {@link Scheduler}.<br>
+ * Unlike the common {@link java.util.concurrent.ForkJoinPool}, this pool is dedicated to scheduled tasks, so that
+ * bursts of blocking tasks (e.g: I/O) do not starve other parallel operations on the server.
+ * <ul>
+ *     <li>Threads are named {@code <name>-<index>} and are daemon threads.</li>
+ *     <li>Idle threads are terminated after one minute.</li>
+ *     <li>When both threads and queue are saturated, or the pool is shut down, the task is counted and rejected with
+ *     {@link RejectedExecutionException}. It is never executed by the submitting thread, which is usually the tick
+ *     thread.</li>
+ * </ul>
+ */
+public class AsyncTaskPool extends ThreadPoolExecutor {
+	private final String name;
+	private final LongAdder submitted = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	/**
+	 * Constructs a pool.
+	 *
+	 * @param name          the prefix of thread names
+	 * @param threads       the maximum number of threads
+	 * @param queueCapacity the maximum number of tasks waiting for a thread
+	 */
+	public AsyncTaskPool(@NotNull String name, int threads, int queueCapacity) {
+		super(threads, threads, 1, TimeUnit.MINUTES, new ArrayBlockingQueue<>(queueCapacity));
+		this.name = name;
+
+		AtomicInteger index = new AtomicInteger();
+		setThreadFactory(runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + index.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		setRejectedExecutionHandler((runnable, executor) -> {
+			rejected.increment();
+			throw new RejectedExecutionException(executor.isShutdown() ? name + " is shut down" : name + " is saturated");
+		});
+		allowCoreThreadTimeOut(true);
+	}
+
+	@Override
+	public void execute(@NotNull Runnable command) {
+		submitted.increment();
+		super.execute(command);
+	}
+
+	@Override
+	protected void afterExecute(Runnable r, Throwable t) {
+		if (t != null) failed.increment();
+	}
+
+	@NotNull
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the total number of submitted tasks.
+	 *
+	 * @return number of tasks
+	 */
+	public long getSubmittedTaskCount() {
+		return submitted.sum();
+	}
+
+	/**
+	 * Gets the total number of tasks which were rejected due to saturation or shutdown.
+	 *
+	 * @return number of tasks
+	 */
+	public long getRejectedTaskCount() {
+		return rejected.sum();
+	}
+
+	/**
+	 * Gets the total number of tasks which threw an exception.
+	 *
+	 * @return number of tasks
+	 */
+	public long getFailedTaskCount() {
+		return failed.sum();
+	}
+
+	/**
+	 * Gets the number of tasks waiting for a thread.
+	 *
+	 * @return number of tasks
+	 */
+	public int getQueuedTaskCount() {
+		return getQueue().size();
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.scheduler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of non-negative values with power-of-two buckets.<br>
+ * Bucket {@code 0} counts zero, and bucket {@code i} counts values in {@code [2^(i-1), 2^i)}. Percentiles are
+ * therefore approximated within a factor of two, which is enough to tell fast tasks from slow ones.
+ */
+class Histogram {
+	private static final int BUCKETS = Long.SIZE + 1;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	void record(long value) {
+		value = Math.max(0, value);
+		buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value));
+		count.increment();
+		sum.add(value);
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	long count() {
+		return count.sum();
+	}
+
+	long sum() {
+		return sum.sum();
+	}
+
+	long max() {
+		return max.get();
+	}
+
+	long mean() {
+		long n = count();
+		return n == 0 ? 0 : sum() / n;
+	}
+
+	/**
+	 * Approximates a percentile by the upper bound of the bucket which contains it.
+	 *
+	 * @param percentile the percentile in {@code [0, 1]}
+	 * @return the approximated value, never greater than {@link #max()}
+	 */
+	long percentile(double percentile) {
+		long n = count();
+		if (n == 0) return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile * n));
+		long seen = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets.get(i);
+
+			if (seen >= rank) {
+				long bound = i == 0 ? 0 : i == Long.SIZE ? Long.MAX_VALUE : (1L << i) - 1;
+				return Math.min(bound, max());
+			}
+		}
+
+		return max();
+	}
+}
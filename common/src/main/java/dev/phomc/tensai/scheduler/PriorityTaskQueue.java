@@ -0,0 +1,111 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.scheduler;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link TaskQueue} which is backed by a binary heap.<br>
+ * Both insertion and removal cost {@code O(log n)}. Since removing an arbitrary element from a heap costs
+ * {@code O(n)}, cancelled tasks are only counted and then compacted in batch once they take up half of the heap.
+ */
+class PriorityTaskQueue implements TaskQueue {
+	private static final int MIN_COMPACTION_SIZE = 64;
+
+	private final PriorityQueue<Task> queue = new PriorityQueue<>(
+			// compare "next tick time": put tasks which will be executed soon first
+			// compare "priority": put higher-prioritized tasks first
+			Comparator.comparingLong(Task::getNextTickTime).thenComparing((o1, o2) -> Float.compare(o2.getPriority(), o1.getPriority()))
+	);
+	private int cancelled;
+
+	@Override
+	public void offer(@NotNull Task task) {
+		if (task.isCancelled()) return;
+
+		if (task.queue == this) {
+			// the task is rescheduled before it was due
+			queue.remove(task);
+		}
+
+		task.queue = this;
+		queue.offer(task);
+	}
+
+	@Override
+	public void drain(long tick, @NotNull Collection<Task> out) {
+		while (true) {
+			Task task = queue.peek();
+			if (task == null || task.getNextTickTime() > tick) break;
+			queue.poll();
+			task.queue = null;
+
+			if (task.isCancelled()) {
+				// the task might be cancelled concurrently and not yet counted
+				if (task.removed) cancelled--;
+				continue;
+			}
+
+			out.add(task);
+		}
+	}
+
+	@Override
+	public void remove(@NotNull Task task) {
+		if (task.queue != this || task.removed) return;
+		task.removed = true;
+		cancelled++;
+
+		if (cancelled >= MIN_COMPACTION_SIZE && cancelled > queue.size() / 2) {
+			purge();
+		}
+	}
+
+	@Override
+	public void purge() {
+		if (cancelled == 0) return;
+
+		queue.removeIf(task -> {
+			if (!task.isCancelled()) return false;
+			task.queue = null;
+			return true;
+		});
+		cancelled = 0;
+	}
+
+	@Override
+	public int size() {
+		return queue.size() - cancelled;
+	}
+
+	@Override
+	public int cancelledSize() {
+		return cancelled;
+	}
+}
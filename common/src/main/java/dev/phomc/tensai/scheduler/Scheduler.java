@@ -24,47 +24,235 @@
 
 package dev.phomc.tensai.scheduler;
 
-import java.util.Comparator;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
 
 /**
  * Represents a task scheduler.
  */
 public class Scheduler {
-	private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>(
-			5,
-			// compare "next tick time": put tasks which will be executed soon first
-			// compare "priority": put higher-prioritized tasks first
-			Comparator.comparingLong(Task::getNextTickTime).thenComparing((o1, o2) -> Float.compare(o2.getPriority(), o1.getPriority()))
-	);
+	private final TaskQueue queue;
+	private final Queue<Task> dueTasks = new ArrayDeque<>();
+	// submissions and cancellations from other threads
+	private final Queue<Task> inbox = new ConcurrentLinkedQueue<>();
+	private final Queue<Runnable> continuations = new ConcurrentLinkedQueue<>();
+	private final Executor mainThreadExecutor = this::executeSync;
+	private final SerialLanes lanes = new SerialLanes(this::handleException);
 	private final AtomicLong counter = new AtomicLong();
+	private volatile Thread tickThread;
+	private volatile Executor asyncExecutor;
+	private volatile long tickBudget;
+	private volatile long deferredTasks;
+	private volatile long maxCarryOverAge;
+	private volatile SchedulerMetrics metrics;
+
+	/**
+	 * Constructs a scheduler which is backed by {@link Backend#PRIORITY_QUEUE}.
+	 */
+	public Scheduler() {
+		this(Backend.PRIORITY_QUEUE);
+	}
+
+	/**
+	 * Constructs a scheduler.
+	 *
+	 * @param backend the data structure to keep pending tasks
+	 */
+	public Scheduler(@NotNull Backend backend) {
+		queue = backend == Backend.TIMING_WHEEL ? new TimingWheelTaskQueue() : new PriorityTaskQueue();
+	}
 
 	protected void onTick() {
+		tickThread = Thread.currentThread();
+		runContinuations();
+		drainInbox();
+
 		long tick = counter.getAndUpdate(operand -> safeAddition(operand, 1));
+		long budget = tickBudget;
+		SchedulerMetrics metrics = this.metrics;
+		long start = System.nanoTime();
+		boolean executed = false;
+		queue.drain(tick, dueTasks);
+
+		// tasks which are left due to an exception or carried over by the tick budget will be executed first at the next tick
+		while (!dueTasks.isEmpty()) {
+			Task task = dueTasks.peek();
 
-		while (true) {
-			Task task = queue.peek();
-			if (task == null || task.getNextTickTime() > tick) break;
-			queue.poll();
+			if (!task.isAsync() && !task.isCancelled() && executed && budget > 0 && System.nanoTime() - start >= budget) {
+				defer(tick, metrics);
+				break;
+			}
+
+			dueTasks.poll();
 			if (task.isCancelled()) continue;
+			executed |= !task.isAsync();
+			execute(task, tick, metrics);
+		}
+	}
 
-			if (task.isAsync()) {
-				CompletableFuture.runAsync(() -> {
-					task.getExecutor().run();
-				});
+	private void drainInbox() {
+		Task task;
+
+		while ((task = inbox.poll()) != null) {
+			if (task.isCancelled()) {
+				queue.remove(task);
 			} else {
-				task.getExecutor().run();
+				enqueue(task);
 			}
+		}
+	}
 
-			if (task.getRecurringCounter() < task.getRecurringTimes()) {
-				task.increaseRecurringCounter();
-				schedule(task, task.getInterval());
+	private void enqueue(Task task) {
+		task.setNextTickTime(task.requestedTickTime);
+		queue.offer(task);
+	}
+
+	void cancel(Task task) {
+		SchedulerMetrics metrics = this.metrics;
+		if (metrics != null) metrics.recordCancellation();
+
+		if (isPrimaryThread()) {
+			queue.remove(task);
+		} else {
+			inbox.add(task);
+		}
+	}
+
+	private void runContinuations() {
+		Runnable continuation;
+
+		// continuations which are submitted during this pass are executed directly, so the pass always terminates
+		while ((continuation = continuations.poll()) != null) {
+			try {
+				continuation.run();
+			} catch (Throwable throwable) {
+				// a failing continuation must neither abort the tick nor delay the others
+				handleException("Could not execute a continuation", throwable);
 			}
 		}
 	}
 
+	private void executeSync(Runnable command) {
+		if (isPrimaryThread()) {
+			command.run();
+		} else {
+			continuations.add(command);
+		}
+	}
+
+	/**
+	 * Checks whether the current thread is the one which ticks this scheduler.<br>
+	 * By default, it is the thread which called {@link #onTick()} most recently. Platform implementations should
+	 * override this method to delegate to {@link dev.phomc.tensai.server.TensaiServer#isPrimaryThread()}.
+	 *
+	 * @return {@code true} or {@code false}
+	 */
+	protected boolean isPrimaryThread() {
+		return Thread.currentThread() == tickThread;
+	}
+
+	/**
+	 * Handles an exception which cannot be propagated to the submitter of a task, such as one thrown by a
+	 * continuation.<br>
+	 * By default, it is logged with {@link System.Logger}. Platform implementations should override this method to
+	 * log with their own logger.
+	 *
+	 * @param message   the description of the failed operation
+	 * @param throwable the exception
+	 */
+	protected void handleException(@NotNull String message, @NotNull Throwable throwable) {
+		System.getLogger(Scheduler.class.getName()).log(System.Logger.Level.ERROR, message, throwable);
+	}
+
+	private void defer(long tick, SchedulerMetrics metrics) {
+		Iterator<Task> it = dueTasks.iterator();
+		long deferred = 0;
+		long age = maxCarryOverAge;
+
+		while (it.hasNext()) {
+			Task task = it.next();
+
+			if (task.isCancelled()) {
+				it.remove();
+			} else if (task.isAsync()) {
+				// dispatching is cheap, so asynchronous tasks are never deferred
+				it.remove();
+				execute(task, tick, metrics);
+			} else {
+				deferred++;
+				age = Math.max(age, tick - task.getNextTickTime() + 1);
+			}
+		}
+
+		deferredTasks += deferred;
+		maxCarryOverAge = age;
+	}
+
+	private void execute(Task task, long tick, SchedulerMetrics metrics) {
+		Runnable command = metrics == null ? task.getExecutor() : metrics.instrument(task, tick - task.getNextTickTime());
+
+		if (task.isAsync()) {
+			try {
+				if (task.getKey() != null) {
+					lanes.execute(getAsyncExecutor(), task.getKey(), command);
+				} else {
+					getAsyncExecutor().execute(command);
+				}
+			} catch (RejectedExecutionException exception) {
+				// the executor already counted the rejection, the task must not block the tick thread instead
+				handleException("Could not dispatch asynchronous task " + task.getName(), exception);
+			}
+		} else {
+			command.run();
+		}
+
+		if (task.getRecurringCounter() < task.getRecurringTimes()) {
+			task.increaseRecurringCounter();
+			reschedule(task, tick);
+		}
+	}
+
+	private void reschedule(Task task, long tick) {
+		long interval = task.getInterval();
+		long next;
+
+		if (task.getRecurrence() == Task.Recurrence.FIXED_DELAY) {
+			next = safeAddition(tick, interval);
+		} else {
+			// the earliest tick the task can be executed at again
+			long now = tick + 1;
+			next = safeAddition(task.getNextTickTime(), interval);
+
+			if (next < now) {
+				switch (task.getCatchUpPolicy()) {
+					case COALESCE:
+						// the latest missed execution represents all of them
+						next += (now - next) / interval * interval;
+						break;
+					case SKIP:
+						next += (now - next + interval - 1) / interval * interval;
+						break;
+					default:
+						break;
+				}
+			}
+		}
+
+		task.requestedTickTime = next;
+		enqueue(task);
+	}
+
 	private long safeAddition(long x, long delta) {
 		// Copy from Math#addExact
 		long y = x + delta;
@@ -77,8 +265,15 @@ private long safeAddition(long x, long delta) {
 	}
 
 	public void schedule(Task task, long delay) {
-		task.setNextTickTime(safeAddition(counter.get(), delay));
-		queue.offer(task);
+		task.scheduler = this;
+		task.requestedTickTime = safeAddition(counter.get(), delay);
+
+		if (isPrimaryThread()) {
+			enqueue(task);
+		} else {
+			// the tick thread takes over at the beginning of the next tick
+			inbox.add(task);
+		}
 	}
 
 	public void schedule(Task task) {
@@ -89,6 +284,18 @@ public void runAsync(Runnable executor, long delay) {
 		schedule(new Task.Builder().setExecutor(executor).async().build(), delay);
 	}
 
+	/**
+	 * Runs a task asynchronously in the lane of the given key.<br>
+	 * Tasks of the same key are executed serially in submission order, while tasks of different keys run in parallel.
+	 *
+	 * @param key      the key, e.g: the unique id of a player
+	 * @param executor the task
+	 * @param delay    the delay in ticks
+	 */
+	public void runAsync(@NotNull Object key, Runnable executor, long delay) {
+		schedule(new Task.Builder().setExecutor(executor).async(key).build(), delay);
+	}
+
 	public void runSync(Runnable executor, long delay) {
 		schedule(new Task.Builder().setExecutor(executor).build(), delay);
 	}
@@ -100,4 +307,275 @@ public void runAsync(Runnable executor) {
 	public void runSync(Runnable executor) {
 		runSync(executor, 0);
 	}
+
+	/**
+	 * Runs a task asynchronously in the lane of the given key.
+	 *
+	 * @param key      the key, e.g: the unique id of a player
+	 * @param executor the task
+	 * @see #runAsync(Object, Runnable, long)
+	 */
+	public void runAsync(@NotNull Object key, Runnable executor) {
+		runAsync(key, executor, 0);
+	}
+
+	/**
+	 * Gets the executor of asynchronous tasks.<br>
+	 * If no executor was set, a default {@link AsyncTaskPool} is created on demand.
+	 *
+	 * @return the executor
+	 * @see AsyncExecutors#newDefaultPool()
+	 */
+	@NotNull
+	public Executor getAsyncExecutor() {
+		Executor executor = asyncExecutor;
+
+		if (executor == null) {
+			synchronized (this) {
+				executor = asyncExecutor;
+
+				if (executor == null) {
+					executor = asyncExecutor = AsyncExecutors.newDefaultPool();
+				}
+			}
+		}
+
+		return executor;
+	}
+
+	/**
+	 * Sets the executor of asynchronous tasks.<br>
+	 * The previous executor is not shut down by the scheduler.
+	 *
+	 * @param executor the executor
+	 * @see AsyncExecutors
+	 */
+	public void setAsyncExecutor(@NotNull Executor executor) {
+		this.asyncExecutor = executor;
+	}
+
+	/**
+	 * Runs a long job on the primary thread in slices across ticks, starting at the next tick.
+	 *
+	 * @param step        the unit of work, which is called repeatedly until it returns {@code false}
+	 * @param sliceBudget the time budget of each slice in <b>nanoseconds</b>
+	 * @return the handle of the job
+	 * @see SlicedTask
+	 */
+	@NotNull
+	public SlicedTask runSliced(@NotNull SlicedTask.Step step, long sliceBudget) {
+		SlicedTask task = new SlicedTask(step, sliceBudget);
+		schedule(task.getTask());
+		return task;
+	}
+
+	/**
+	 * Processes elements of an iterator on the primary thread in slices across ticks, starting at the next tick.
+	 *
+	 * @param iterator    the iterator
+	 * @param action      the action to be performed for each element
+	 * @param sliceBudget the time budget of each slice in <b>nanoseconds</b>
+	 * @param <T>         the type of elements
+	 * @return the handle of the job
+	 * @see SlicedTask
+	 */
+	@NotNull
+	public <T> SlicedTask runSliced(@NotNull Iterator<T> iterator, @NotNull Consumer<? super T> action, long sliceBudget) {
+		return runSliced(() -> {
+			if (!iterator.hasNext()) return false;
+			action.accept(iterator.next());
+			return iterator.hasNext();
+		}, sliceBudget);
+	}
+
+	/**
+	 * Gets an executor which runs commands on the primary thread.<br>
+	 * Commands submitted from the primary thread are run immediately. Otherwise, they are queued and run together at
+	 * the beginning of the next tick, which is cheaper than scheduling a {@link Task} for each of them. This executor
+	 * can be used to compose {@link CompletableFuture}s, e.g:
+	 * <pre>{@code
+	 * scheduler.supplyAsync(() -> loadData())
+	 *         .thenAcceptAsync(data -> apply(data), scheduler.getMainThreadExecutor());
+	 * }</pre>
+	 *
+	 * @return the main-thread executor
+	 */
+	@NotNull
+	public Executor getMainThreadExecutor() {
+		return mainThreadExecutor;
+	}
+
+	/**
+	 * Computes a value asynchronously using the {@link #getAsyncExecutor() async executor}.
+	 *
+	 * @param supplier the supplier
+	 * @param <T>      the type of the value
+	 * @return a future which is completed with the value
+	 */
+	@NotNull
+	public <T> CompletableFuture<T> supplyAsync(@NotNull Supplier<T> supplier) {
+		return CompletableFuture.supplyAsync(supplier, getAsyncExecutor());
+	}
+
+	/**
+	 * Computes a value on the primary thread.<br>
+	 * If the current thread is the primary one, the value is computed immediately.
+	 *
+	 * @param callable the callable
+	 * @param <T>      the type of the value
+	 * @return a future which is completed with the value, or exceptionally with the thrown exception
+	 * @see #getMainThreadExecutor()
+	 */
+	@NotNull
+	public <T> CompletableFuture<T> callSync(@NotNull Callable<T> callable) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+
+		executeSync(() -> {
+			try {
+				future.complete(callable.call());
+			} catch (Throwable throwable) {
+				future.completeExceptionally(throwable);
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * Gets the time budget of synchronous tasks per tick.
+	 *
+	 * @return the budget in <b>nanoseconds</b>, or {@code 0} if unlimited
+	 */
+	public long getTickBudget() {
+		return tickBudget;
+	}
+
+	/**
+	 * Sets the time budget of synchronous tasks per tick.<br>
+	 * Once the budget is used up, the remaining due synchronous tasks are carried over to the next tick, and they are
+	 * executed before tasks which become due at that tick. At least one synchronous task is executed every tick, so
+	 * that long-running tasks cannot stall the scheduler.
+	 *
+	 * @param tickBudget the budget in <b>nanoseconds</b>, or {@code 0} to disable
+	 */
+	public void setTickBudget(long tickBudget) {
+		this.tickBudget = Math.max(0, tickBudget);
+	}
+
+	/**
+	 * Gets the total number of times synchronous tasks were carried over to the next tick due to the tick budget.
+	 *
+	 * @return number of deferrals
+	 * @see #setTickBudget(long)
+	 */
+	public long getDeferredTaskCount() {
+		return deferredTasks;
+	}
+
+	/**
+	 * Gets the maximum number of ticks a synchronous task was carried over.
+	 *
+	 * @return number of ticks
+	 * @see #setTickBudget(long)
+	 */
+	public long getMaxCarryOverAge() {
+		return maxCarryOverAge;
+	}
+
+	/**
+	 * Gets the number of keyed lanes which have pending or running tasks.<br>
+	 * Lanes are reclaimed automatically once they become idle.
+	 *
+	 * @return number of active lanes
+	 * @see #runAsync(Object, Runnable)
+	 */
+	public int getActiveLanes() {
+		return lanes.size();
+	}
+
+	/**
+	 * Checks whether execution metrics are collected.
+	 *
+	 * @return {@code true} or {@code false}
+	 * @see #setMetricsEnabled(boolean)
+	 */
+	public boolean isMetricsEnabled() {
+		return metrics != null;
+	}
+
+	/**
+	 * Enables or disables the collection of execution metrics.<br>
+	 * While enabled, every executed task is timed and grouped by its {@link Task#getName() name}. While disabled, the
+	 * only overhead is a field read per tick. Disabling discards collected metrics, so enabling again starts over.
+	 *
+	 * @param enabled whether metrics are collected
+	 * @see #snapshot()
+	 */
+	public void setMetricsEnabled(boolean enabled) {
+		if (enabled == isMetricsEnabled()) return;
+		metrics = enabled ? new SchedulerMetrics() : null;
+	}
+
+	/**
+	 * Takes a snapshot of the state and the metrics of this scheduler.<br>
+	 * This method should be called from the primary thread, since the task counts are read from data structures
+	 * which are only owned by it. Other threads may see stale or inconsistent counts, and should take the snapshot
+	 * with {@link #callSync(Callable)} instead.
+	 *
+	 * @return the snapshot
+	 */
+	@NotNull
+	public SchedulerSnapshot snapshot() {
+		return new SchedulerSnapshot(this, metrics, asyncExecutor);
+	}
+
+	/**
+	 * Releases all cancelled tasks which are still kept by the scheduler.<br>
+	 * Normally, there is no need to call this method since cancelled tasks are released immediately or compacted
+	 * automatically, depending on the {@link Backend}.<br>
+	 * If this method is not called from the primary thread, the cancelled tasks are released at the beginning of the
+	 * next tick.
+	 */
+	public void purge() {
+		executeSync(queue::purge);
+	}
+
+	/**
+	 * Gets the number of pending tasks which are not cancelled.<br>
+	 * Tasks which are submitted from other threads and tasks which are carried over by the tick budget are included.
+	 * This method should be called from the primary thread; other threads may see a stale or inconsistent count.
+	 *
+	 * @return number of pending tasks
+	 */
+	public int getPendingTasks() {
+		return queue.size() + dueTasks.size() + (inbox.isEmpty() ? 0 : inbox.size());
+	}
+
+	/**
+	 * Gets the number of cancelled tasks which are not released yet.<br>
+	 * This method should be called from the primary thread; other threads may see a stale or inconsistent count.
+	 *
+	 * @return number of cancelled tasks
+	 * @see #purge()
+	 */
+	public int getCancelledTasks() {
+		return queue.cancelledSize();
+	}
+
+	/**
+	 * Represents the data structure which keeps pending tasks of a scheduler.
+	 */
+	public enum Backend {
+		/**
+		 * A binary heap. Scheduling a task costs {@code O(log n)}.<br>
+		 * Cancelled tasks are compacted in batch. This is suitable for a small amount of tasks.
+		 */
+		PRIORITY_QUEUE,
+
+		/**
+		 * A hashed hierarchical timing wheel. Scheduling, expiring and cancelling a task cost {@code O(1)}.<br>
+		 * This is suitable for a large amount of (especially delayed) tasks.
+		 */
+		TIMING_WHEEL
+	}
 }
@@ -0,0 +1,116 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.scheduler;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Collects execution statistics of a {@link Scheduler} while metrics are enabled.<br>
+ * Statistics are grouped by {@link Task#getName() task name}. Synchronous tasks are recorded by the tick thread and
+ * asynchronous tasks by the worker threads, so all counters are concurrent.
+ */
+class SchedulerMetrics {
+	static final String UNNAMED = "unnamed";
+
+	private final ConcurrentMap<String, TaskMetrics> tasks = new ConcurrentHashMap<>();
+	private final Histogram asyncWait = new Histogram();
+	private final LongAdder executed = new LongAdder();
+	private final LongAdder cancelled = new LongAdder();
+	private final long startTime = System.nanoTime();
+
+	/**
+	 * Wraps the executor of a due task to measure it.
+	 *
+	 * @param task     the task
+	 * @param lateness the number of ticks the task is executed after its due tick
+	 * @return the instrumented executor
+	 */
+	@NotNull
+	Runnable instrument(@NotNull Task task, long lateness) {
+		TaskMetrics metrics = tasks.computeIfAbsent(name(task.getName()), TaskMetrics::new);
+		Runnable command = task.getExecutor();
+		boolean async = task.isAsync();
+		long submitted = System.nanoTime();
+		metrics.lateness.record(lateness);
+
+		return () -> {
+			long start = System.nanoTime();
+			if (async) asyncWait.record(start - submitted);
+
+			try {
+				command.run();
+			} finally {
+				metrics.runtime.record(System.nanoTime() - start);
+				executed.increment();
+			}
+		};
+	}
+
+	void recordCancellation() {
+		cancelled.increment();
+	}
+
+	Collection<TaskMetrics> getTasks() {
+		return tasks.values();
+	}
+
+	Histogram getAsyncWait() {
+		return asyncWait;
+	}
+
+	long getExecutedTasks() {
+		return executed.sum();
+	}
+
+	long getCancelledTasks() {
+		return cancelled.sum();
+	}
+
+	long getStartTime() {
+		return startTime;
+	}
+
+	private static String name(@Nullable String name) {
+		return name == null ? UNNAMED : name;
+	}
+
+	static class TaskMetrics {
+		final String name;
+		// execution time in nanoseconds
+		final Histogram runtime = new Histogram();
+		// delay between the due tick and the actual tick
+		final Histogram lateness = new Histogram();
+
+		TaskMetrics(String name) {
+			this.name = name;
+		}
+	}
+}
@@ -0,0 +1,366 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable view of the state and the statistics of a {@link Scheduler} at a point of time.<br>
+ * Execution statistics are only available while {@link Scheduler#setMetricsEnabled(boolean) metrics} are enabled.
+ *
+ * @see Scheduler#snapshot()
+ */
+public class SchedulerSnapshot {
+	private final int pendingTasks;
+	private final int unreleasedCancelledTasks;
+	private final int activeLanes;
+	private final int asyncQueuedTasks;
+	private final long deferredTasks;
+	private final long maxCarryOverAge;
+	private final boolean metricsEnabled;
+	private final long uptime;
+	private final long executedTasks;
+	private final long cancelledTasks;
+	private final long meanAsyncWait;
+	private final long p99AsyncWait;
+	private final long maxAsyncWait;
+	private final List<TaskSnapshot> tasks;
+
+	SchedulerSnapshot(@NotNull Scheduler scheduler, @Nullable SchedulerMetrics metrics, @Nullable Executor executor) {
+		pendingTasks = scheduler.getPendingTasks();
+		unreleasedCancelledTasks = scheduler.getCancelledTasks();
+		activeLanes = scheduler.getActiveLanes();
+		asyncQueuedTasks = executor instanceof AsyncTaskPool ? ((AsyncTaskPool) executor).getQueuedTaskCount() : -1;
+		deferredTasks = scheduler.getDeferredTaskCount();
+		maxCarryOverAge = scheduler.getMaxCarryOverAge();
+		metricsEnabled = metrics != null;
+
+		if (metrics == null) {
+			uptime = executedTasks = cancelledTasks = meanAsyncWait = p99AsyncWait = maxAsyncWait = 0;
+			tasks = Collections.emptyList();
+			return;
+		}
+
+		Histogram asyncWait = metrics.getAsyncWait();
+		uptime = System.nanoTime() - metrics.getStartTime();
+		executedTasks = metrics.getExecutedTasks();
+		cancelledTasks = metrics.getCancelledTasks();
+		meanAsyncWait = asyncWait.mean();
+		p99AsyncWait = asyncWait.percentile(0.99);
+		maxAsyncWait = asyncWait.max();
+
+		List<TaskSnapshot> list = new ArrayList<>();
+
+		for (SchedulerMetrics.TaskMetrics task : metrics.getTasks()) {
+			list.add(new TaskSnapshot(task));
+		}
+
+		list.sort(Comparator.comparingLong(TaskSnapshot::getTotalTime).reversed());
+		tasks = Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * Gets the number of pending tasks which are not cancelled.
+	 *
+	 * @return number of pending tasks
+	 */
+	public int getPendingTasks() {
+		return pendingTasks;
+	}
+
+	/**
+	 * Gets the number of cancelled tasks which are not released yet.
+	 *
+	 * @return number of cancelled tasks
+	 */
+	public int getUnreleasedCancelledTasks() {
+		return unreleasedCancelledTasks;
+	}
+
+	/**
+	 * Gets the number of keyed lanes which have pending or running tasks.
+	 *
+	 * @return number of active lanes
+	 */
+	public int getActiveLanes() {
+		return activeLanes;
+	}
+
+	/**
+	 * Gets the number of asynchronous tasks which are waiting for a worker.
+	 *
+	 * @return number of queued tasks, or {@code -1} if the executor is not an {@link AsyncTaskPool}
+	 */
+	public int getAsyncQueuedTasks() {
+		return asyncQueuedTasks;
+	}
+
+	/**
+	 * Gets the total number of times synchronous tasks were carried over to the next tick.
+	 *
+	 * @return number of deferrals
+	 */
+	public long getDeferredTasks() {
+		return deferredTasks;
+	}
+
+	/**
+	 * Gets the maximum number of ticks a synchronous task was carried over.
+	 *
+	 * @return number of ticks
+	 */
+	public long getMaxCarryOverAge() {
+		return maxCarryOverAge;
+	}
+
+	/**
+	 * Checks whether execution statistics were collected.
+	 *
+	 * @return {@code true} or {@code false}
+	 */
+	public boolean isMetricsEnabled() {
+		return metricsEnabled;
+	}
+
+	/**
+	 * Gets the time since metrics were enabled.
+	 *
+	 * @return the duration in <b>nanoseconds</b>
+	 */
+	public long getUptime() {
+		return uptime;
+	}
+
+	/**
+	 * Gets the number of executed tasks since metrics were enabled.
+	 *
+	 * @return number of executed tasks
+	 */
+	public long getExecutedTasks() {
+		return executedTasks;
+	}
+
+	/**
+	 * Gets the number of cancelled tasks since metrics were enabled.
+	 *
+	 * @return number of cancelled tasks
+	 */
+	public long getCancelledTasks() {
+		return cancelledTasks;
+	}
+
+	/**
+	 * Gets the mean time asynchronous tasks waited for a worker.
+	 *
+	 * @return the duration in <b>nanoseconds</b>
+	 */
+	public long getMeanAsyncWait() {
+		return meanAsyncWait;
+	}
+
+	/**
+	 * Gets the approximated 99th percentile of the time asynchronous tasks waited for a worker.
+	 *
+	 * @return the duration in <b>nanoseconds</b>
+	 */
+	public long getP99AsyncWait() {
+		return p99AsyncWait;
+	}
+
+	/**
+	 * Gets the maximum time an asynchronous task waited for a worker.
+	 *
+	 * @return the duration in <b>nanoseconds</b>
+	 */
+	public long getMaxAsyncWait() {
+		return maxAsyncWait;
+	}
+
+	/**
+	 * Gets the statistics of each task name, sorted by total execution time in descending order.
+	 *
+	 * @return unmodifiable list of statistics
+	 */
+	@NotNull
+	public List<TaskSnapshot> getTasks() {
+		return tasks;
+	}
+
+	/**
+	 * Formats this snapshot into human-readable lines, e.g: to be shown in an admin command.
+	 *
+	 * @param limit the maximum number of task names to be included
+	 * @return lines of text
+	 */
+	@NotNull
+	public List<String> format(int limit) {
+		List<String> lines = new ArrayList<>();
+		lines.add(String.format(Locale.ROOT, "Pending: %d, cancelled (unreleased): %d, lanes: %d, async queued: %s",
+				pendingTasks, unreleasedCancelledTasks, activeLanes, asyncQueuedTasks < 0 ? "n/a" : asyncQueuedTasks));
+		lines.add(String.format(Locale.ROOT, "Deferred: %d, max carry-over: %d ticks", deferredTasks, maxCarryOverAge));
+
+		if (!metricsEnabled) {
+			lines.add("Metrics are disabled.");
+			return lines;
+		}
+
+		lines.add(String.format(Locale.ROOT, "Executed: %d, cancelled: %d in %ds", executedTasks, cancelledTasks,
+				TimeUnit.NANOSECONDS.toSeconds(uptime)));
+		lines.add(String.format(Locale.ROOT, "Async wait: mean %s, p99 %s, max %s", formatTime(meanAsyncWait),
+				formatTime(p99AsyncWait), formatTime(maxAsyncWait)));
+
+		for (TaskSnapshot task : tasks.subList(0, Math.min(limit, tasks.size()))) {
+			lines.add(String.format(Locale.ROOT, "- %s: %d runs, total %s, mean %s, p50 %s, p99 %s, max %s, late %.2f/%d ticks",
+					task.getName(), task.getCount(), formatTime(task.getTotalTime()), formatTime(task.getMeanTime()),
+					formatTime(task.getP50Time()), formatTime(task.getP99Time()), formatTime(task.getMaxTime()),
+					task.getMeanLateness(), task.getMaxLateness()));
+		}
+
+		return lines;
+	}
+
+	private static String formatTime(long nanos) {
+		if (nanos < 1_000) return nanos + "ns";
+		if (nanos < 1_000_000) return String.format(Locale.ROOT, "%.1fus", nanos / 1e3);
+		return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+	}
+
+	/**
+	 * Represents the statistics of tasks which share the same name.
+	 */
+	public static class TaskSnapshot {
+		private final String name;
+		private final long count;
+		private final long totalTime;
+		private final long p50Time;
+		private final long p99Time;
+		private final long maxTime;
+		private final double meanLateness;
+		private final long maxLateness;
+
+		TaskSnapshot(SchedulerMetrics.TaskMetrics metrics) {
+			name = metrics.name;
+			count = metrics.runtime.count();
+			totalTime = metrics.runtime.sum();
+			p50Time = metrics.runtime.percentile(0.5);
+			p99Time = metrics.runtime.percentile(0.99);
+			maxTime = metrics.runtime.max();
+			long dispatched = metrics.lateness.count();
+			meanLateness = dispatched == 0 ? 0 : (double) metrics.lateness.sum() / dispatched;
+			maxLateness = metrics.lateness.max();
+		}
+
+		/**
+		 * Gets the task name.
+		 *
+		 * @return the name, or {@code "unnamed"} for tasks without name
+		 */
+		@NotNull
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the number of executions.
+		 *
+		 * @return number of executions
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Gets the total execution time.
+		 *
+		 * @return the duration in <b>nanoseconds</b>
+		 */
+		public long getTotalTime() {
+			return totalTime;
+		}
+
+		/**
+		 * Gets the mean execution time.
+		 *
+		 * @return the duration in <b>nanoseconds</b>
+		 */
+		public long getMeanTime() {
+			return count == 0 ? 0 : totalTime / count;
+		}
+
+		/**
+		 * Gets the approximated median execution time.
+		 *
+		 * @return the duration in <b>nanoseconds</b>
+		 */
+		public long getP50Time() {
+			return p50Time;
+		}
+
+		/**
+		 * Gets the approximated 99th percentile of execution time.
+		 *
+		 * @return the duration in <b>nanoseconds</b>
+		 */
+		public long getP99Time() {
+			return p99Time;
+		}
+
+		/**
+		 * Gets the maximum execution time.
+		 *
+		 * @return the duration in <b>nanoseconds</b>
+		 */
+		public long getMaxTime() {
+			return maxTime;
+		}
+
+		/**
+		 * Gets the mean number of ticks tasks were executed after their due tick.
+		 *
+		 * @return number of ticks
+		 */
+		public double getMeanLateness() {
+			return meanLateness;
+		}
+
+		/**
+		 * Gets the maximum number of ticks a task was executed after its due tick.
+		 *
+		 * @return number of ticks
+		 */
+		public long getMaxLateness() {
+			return maxLateness;
+		}
+	}
+}
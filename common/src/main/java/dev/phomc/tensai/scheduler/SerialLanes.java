@@ -0,0 +1,132 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Executes commands serially per key on top of a shared executor.<br>
+ * Commands of the same key are executed one by one in submission order, while commands of different keys run in
+ * parallel. A lane holds at most one slot of the executor at a time and drains its commands in a loop before giving
+ * it back. Lanes are removed as soon as they become idle, or when the executor rejects them.
+ */
+class SerialLanes {
+	private final ConcurrentMap<Object, Lane> lanes = new ConcurrentHashMap<>();
+	private final BiConsumer<String, Throwable> exceptionHandler;
+
+	/**
+	 * Constructs lanes.
+	 *
+	 * @param exceptionHandler receives exceptions thrown by commands, which have no submitter to propagate to
+	 */
+	SerialLanes(@NotNull BiConsumer<String, Throwable> exceptionHandler) {
+		this.exceptionHandler = exceptionHandler;
+	}
+
+	void execute(@NotNull Executor executor, @NotNull Object key, @NotNull Runnable command) {
+		while (true) {
+			Lane lane = lanes.computeIfAbsent(key, Lane::new);
+
+			synchronized (lane) {
+				// the lane was reclaimed after the lookup
+				if (lane.retired) continue;
+				lane.commands.add(command);
+				if (lane.running) return;
+				lane.running = true;
+			}
+
+			try {
+				executor.execute(lane);
+			} catch (RuntimeException exception) {
+				int rejected;
+
+				// the lane will never run, so later commands of the key must start a new one instead of queueing behind it
+				synchronized (lane) {
+					rejected = lane.commands.size();
+					lane.commands.clear();
+					lane.retire();
+				}
+
+				throw new RejectedExecutionException(rejected + " command(s) of lane " + key + " were rejected", exception);
+			}
+
+			return;
+		}
+	}
+
+	int size() {
+		return lanes.size();
+	}
+
+	private class Lane implements Runnable {
+		private final Object key;
+		private final Queue<Runnable> commands = new ArrayDeque<>();
+		private boolean running;
+		private boolean retired;
+
+		private Lane(Object key) {
+			this.key = key;
+		}
+
+		@Override
+		public void run() {
+			// drained in a loop rather than re-submitted per command, which would recurse on an executor running it inline
+			while (true) {
+				Runnable command;
+
+				synchronized (this) {
+					command = commands.poll();
+
+					if (command == null) {
+						retire();
+						return;
+					}
+				}
+
+				try {
+					command.run();
+				} catch (Throwable throwable) {
+					// a failing command must not stall the commands queued behind it
+					exceptionHandler.accept("Could not execute a command of lane " + key, throwable);
+				}
+			}
+		}
+
+		// must hold the monitor of this lane
+		private void retire() {
+			running = false;
+			retired = true;
+			lanes.remove(key, this);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.scheduler;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents a long synchronous job which is executed in slices across ticks.<br>
+ * Every tick, the job is resumed by calling its {@link Step} repeatedly until either the step reports that there is
+ * no work left, or the slice budget is used up. In the latter case, the job is parked until the next tick. At least
+ * one step is executed per tick, so a step should be small enough to fit into a slice.
+ *
+ * @see Scheduler#runSliced(Step, long)
+ */
+public class SlicedTask {
+	private final Step step;
+	private final long sliceBudget;
+	private final CompletableFuture<Long> future = new CompletableFuture<>();
+	private final Task task;
+	private volatile long steps;
+	private volatile long slices;
+
+	SlicedTask(@NotNull Step step, long sliceBudget) {
+		this.step = step;
+		this.sliceBudget = Math.max(0, sliceBudget);
+		this.task = new Task.Builder().setInterval(1).setInfiniteRecurrence().setExecutor(this::runSlice).build();
+	}
+
+	@NotNull
+	Task getTask() {
+		return task;
+	}
+
+	private void runSlice() {
+		if (future.isDone()) {
+			// completed or cancelled from outside
+			task.cancel();
+			return;
+		}
+
+		long start = System.nanoTime();
+		long count = steps;
+		boolean more;
+
+		try {
+			do {
+				more = step.step();
+				count++;
+			} while (more && System.nanoTime() - start < sliceBudget);
+		} catch (Throwable throwable) {
+			steps = count;
+			task.cancel();
+			future.completeExceptionally(throwable);
+			return;
+		}
+
+		steps = count;
+		slices++;
+
+		if (!more) {
+			task.cancel();
+			future.complete(count);
+		}
+	}
+
+	/**
+	 * Gets the future which is completed with the total number of executed steps once the job is done.<br>
+	 * If a step throws an exception, the future is completed exceptionally. Cancelling the future stops the job.
+	 *
+	 * @return the future
+	 */
+	@NotNull
+	public CompletableFuture<Long> getFuture() {
+		return future;
+	}
+
+	/**
+	 * Gets the number of executed steps so far.
+	 *
+	 * @return number of steps
+	 */
+	public long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Gets the number of ticks this job has been resumed in so far.
+	 *
+	 * @return number of slices
+	 */
+	public long getSlices() {
+		return slices;
+	}
+
+	/**
+	 * Gets the time budget of each slice.
+	 *
+	 * @return the budget in <b>nanoseconds</b>
+	 */
+	public long getSliceBudget() {
+		return sliceBudget;
+	}
+
+	/**
+	 * Checks whether the job is completed, failed or cancelled.
+	 *
+	 * @return {@code true} or {@code false}
+	 */
+	public boolean isDone() {
+		return future.isDone();
+	}
+
+	/**
+	 * Stops the job. The remaining steps are not executed and the future is cancelled.
+	 */
+	public void cancel() {
+		task.cancel();
+		future.cancel(false);
+	}
+
+	/**
+	 * Represents a unit of work of a {@link SlicedTask}.
+	 */
+	@FunctionalInterface
+	public interface Step {
+		/**
+		 * Executes a unit of work.
+		 *
+		 * @return {@code true} if there is more work to do, or {@code false} if the job is done
+		 * @throws Exception if the job fails
+		 */
+		boolean step() throws Exception;
+	}
+}
@@ -25,25 +25,57 @@
 package dev.phomc.tensai.scheduler;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class Task {
+	private static final Runnable NOOP = () -> {
+		// cancelled
+	};
+
+	private String name;
 	private boolean async;
+	private Object key;
 	private float priority;
 	private int recurringTimes;
 	private int recurringCounter;
 	private long interval;
+	private Recurrence recurrence;
+	private CatchUpPolicy catchUpPolicy;
 	private Runnable executor;
 	private long nextTickTime;
-	private boolean cancelled;
+	private volatile boolean cancelled;
+
+	// the scheduler which this task was submitted to
+	volatile Scheduler scheduler;
+	// the tick which was requested by the latest submission, applied by the tick thread
+	volatile long requestedTickTime;
+	// the queue which is holding this task, only accessed by the tick thread
+	TaskQueue queue;
+	// whether the task was removed from its queue due to cancellation
+	boolean removed;
+	// intrusive links used by TaskList
+	TaskList list;
+	Task previous;
+	Task next;
 
 	Task() {
 		//
 	}
 
+	@Nullable
+	public String getName() {
+		return name;
+	}
+
 	public boolean isAsync() {
 		return async;
 	}
 
+	@Nullable
+	public Object getKey() {
+		return key;
+	}
+
 	public float getPriority() {
 		return priority;
 	}
@@ -65,6 +97,16 @@ public long getInterval() {
 		return interval;
 	}
 
+	@NotNull
+	public Recurrence getRecurrence() {
+		return recurrence;
+	}
+
+	@NotNull
+	public CatchUpPolicy getCatchUpPolicy() {
+		return catchUpPolicy;
+	}
+
 	@NotNull
 	public Runnable getExecutor() {
 		return executor;
@@ -82,22 +124,48 @@ public boolean isCancelled() {
 		return cancelled || recurringCounter > recurringTimes;
 	}
 
+	/**
+	 * Cancels this task.<br>
+	 * The task is released from the scheduler immediately, as well as the executor it holds.
+	 */
 	public void cancel() {
+		if (cancelled) return;
 		cancelled = true;
+		executor = NOOP;
+		Scheduler s = scheduler;
+
+		if (s != null) {
+			s.cancel(this);
+		}
 	}
 
 	public static class Builder {
+		private String name;
 		private boolean async;
+		private Object key;
 		private float priority;
 		private int recurringTimes;
 		private long interval;
+		private Recurrence recurrence = Recurrence.FIXED_DELAY;
+		private CatchUpPolicy catchUpPolicy = CatchUpPolicy.COALESCE;
 		private Runnable executor;
 
+		public Builder setName(@Nullable String name) {
+			this.name = name;
+			return this;
+		}
+
 		public Builder async() {
 			this.async = true;
 			return this;
 		}
 
+		public Builder async(@NotNull Object key) {
+			this.async = true;
+			this.key = key;
+			return this;
+		}
+
 		public Builder setPriority(float priority) {
 			this.priority = priority;
 			return this;
@@ -118,6 +186,16 @@ public Builder setInterval(long interval) {
 			return this;
 		}
 
+		public Builder setRecurrence(@NotNull Recurrence recurrence) {
+			this.recurrence = recurrence;
+			return this;
+		}
+
+		public Builder setCatchUpPolicy(@NotNull CatchUpPolicy catchUpPolicy) {
+			this.catchUpPolicy = catchUpPolicy;
+			return this;
+		}
+
 		public Builder setExecutor(@NotNull Runnable executor) {
 			this.executor = executor;
 			return this;
@@ -130,12 +208,55 @@ public Task build() {
 			}
 
 			Task task = new Task();
+			task.name = name;
 			task.async = async;
+			task.key = key;
 			task.priority = Math.max(0, priority);
 			task.recurringTimes = Math.max(0, recurringTimes);
 			task.interval = Math.max(1, interval);
+			task.recurrence = recurrence;
+			task.catchUpPolicy = catchUpPolicy;
 			task.executor = executor;
 			return task;
 		}
 	}
+
+	/**
+	 * Represents how the next execution of a recurring task is computed.
+	 */
+	public enum Recurrence {
+		/**
+		 * The next execution is due {@link #getInterval() interval} ticks after the tick the task was actually
+		 * executed at. Delays caused by the tick budget push back all later executions.
+		 */
+		FIXED_DELAY,
+
+		/**
+		 * The next execution is due {@link #getInterval() interval} ticks after the tick the previous execution was
+		 * due at, so executions stay aligned to their original schedule. Missed executions are handled according to
+		 * the {@link CatchUpPolicy}.
+		 */
+		FIXED_RATE
+	}
+
+	/**
+	 * Represents how a {@link Recurrence#FIXED_RATE fixed-rate} task handles executions which were missed because it
+	 * was executed late, e.g: the tick budget was used up.
+	 */
+	public enum CatchUpPolicy {
+		/**
+		 * Executes every missed execution, one per tick, until the task is back on schedule.
+		 */
+		RUN_ALL,
+
+		/**
+		 * Merges all missed executions into a single one at the next tick.
+		 */
+		COALESCE,
+
+		/**
+		 * Drops missed executions and waits for the next execution on schedule.
+		 */
+		SKIP
+	}
 }
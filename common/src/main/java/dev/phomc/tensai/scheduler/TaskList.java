@@ -0,0 +1,106 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.scheduler;
+
+import java.util.Collection;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An intrusive doubly-linked list of tasks.<br>
+ * The links are stored in {@link Task} itself, so that adding and removing a task are done in {@code O(1)} without
+ * allocating any node. A task belongs to at most one list at a time.
+ */
+class TaskList {
+	private Task head;
+	private Task tail;
+	private int size;
+
+	void add(@NotNull Task task) {
+		task.list = this;
+		task.previous = tail;
+		task.next = null;
+
+		if (tail == null) {
+			head = task;
+		} else {
+			tail.next = task;
+		}
+
+		tail = task;
+		size++;
+	}
+
+	void remove(@NotNull Task task) {
+		if (task.list != this) return;
+
+		if (task.previous == null) {
+			head = task.next;
+		} else {
+			task.previous.next = task.next;
+		}
+
+		if (task.next == null) {
+			tail = task.previous;
+		} else {
+			task.next.previous = task.previous;
+		}
+
+		task.list = null;
+		task.previous = null;
+		task.next = null;
+		size--;
+	}
+
+	/**
+	 * Removes all tasks from this list and appends them to the given collection.
+	 *
+	 * @param out the collection to receive tasks
+	 */
+	void transferTo(@NotNull Collection<Task> out) {
+		Task task = head;
+
+		while (task != null) {
+			Task next = task.next;
+			task.list = null;
+			task.previous = null;
+			task.next = null;
+			out.add(task);
+			task = next;
+		}
+
+		head = null;
+		tail = null;
+		size = 0;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+}
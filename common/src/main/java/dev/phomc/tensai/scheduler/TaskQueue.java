@@ -0,0 +1,79 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.scheduler;
+
+import java.util.Collection;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents the storage of pending tasks which backs a {@link Scheduler}.<br>
+ * Implementations are not thread-safe: they are only accessed by the thread which ticks the scheduler, while
+ * submissions from other threads are handed over through the scheduler's inbox.
+ */
+interface TaskQueue {
+	/**
+	 * Adds a task. The task will be due at its {@link Task#getNextTickTime()}.
+	 *
+	 * @param task the task
+	 */
+	void offer(@NotNull Task task);
+
+	/**
+	 * Removes all tasks which are due at or before the given tick.<br>
+	 * Removed tasks are appended to the given collection in execution order: tasks which are due sooner come first,
+	 * and tasks which are due at the same tick are ordered by priority.
+	 *
+	 * @param tick the current tick
+	 * @param out  the collection to receive due tasks
+	 */
+	void drain(long tick, @NotNull Collection<Task> out);
+
+	/**
+	 * Removes a cancelled task. Implementations should release the task as soon as possible.
+	 *
+	 * @param task the task
+	 */
+	void remove(@NotNull Task task);
+
+	/**
+	 * Releases all cancelled tasks which are still kept by this queue.
+	 */
+	void purge();
+
+	/**
+	 * Gets the number of pending tasks which are not cancelled.
+	 *
+	 * @return number of live tasks
+	 */
+	int size();
+
+	/**
+	 * Gets the number of cancelled tasks which are still kept by this queue.
+	 *
+	 * @return number of cancelled tasks
+	 */
+	int cancelledSize();
+}
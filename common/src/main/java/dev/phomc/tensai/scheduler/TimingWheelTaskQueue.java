@@ -0,0 +1,153 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link TaskQueue} which is backed by a hashed hierarchical timing wheel.<br>
+ * The wheel consists of {@link #LEVELS} levels of {@link #SLOTS} slots each. A slot at level {@code L} covers
+ * {@code SLOTS^L} ticks. A task is put into the lowest level which can hold its due tick relatively to the current
+ * tick; whenever the current tick crosses a slot boundary of a higher level, the tasks in that slot are cascaded down
+ * to lower levels. Therefore, insertion costs {@code O(1)} and each task is moved at most {@link #LEVELS} times
+ * regardless of the number of pending tasks. Cancelled tasks are unlinked from their slot immediately.
+ */
+class TimingWheelTaskQueue implements TaskQueue {
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	private static final int LEVELS = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+	private static final Comparator<Task> PRIORITY_ORDER = (o1, o2) -> Float.compare(o2.getPriority(), o1.getPriority());
+
+	private final TaskList[][] wheel = new TaskList[LEVELS][SLOTS];
+	private final List<Task> scratch = new ArrayList<>();
+	// the next tick to be expired
+	private long time;
+	private int size;
+
+	TimingWheelTaskQueue() {
+		for (TaskList[] level : wheel) {
+			for (int i = 0; i < SLOTS; i++) {
+				level[i] = new TaskList();
+			}
+		}
+	}
+
+	@Override
+	public void offer(@NotNull Task task) {
+		if (task.isCancelled()) return;
+
+		if (task.queue == this) {
+			// the task is rescheduled before it was due
+			task.list.remove(task);
+			size--;
+		}
+
+		task.queue = this;
+		insert(task);
+		size++;
+	}
+
+	private void insert(Task task) {
+		// overdue tasks are expired at the next possible tick
+		long due = Math.max(task.getNextTickTime(), time);
+		long diff = due ^ time;
+		int level = diff == 0 ? 0 : (Long.SIZE - 1 - Long.numberOfLeadingZeros(diff)) / SLOT_BITS;
+		wheel[level][(int) (due >>> (level * SLOT_BITS)) & SLOT_MASK].add(task);
+	}
+
+	@Override
+	public void drain(long tick, @NotNull Collection<Task> out) {
+		while (time <= tick) {
+			advance(out);
+			time++;
+		}
+	}
+
+	private void advance(Collection<Task> out) {
+		// find the highest level whose slot boundary is crossed at this tick
+		int top = 0;
+
+		while (top + 1 < LEVELS && (time & ((1L << ((top + 1) * SLOT_BITS)) - 1)) == 0) {
+			top++;
+		}
+
+		// cascade from top to bottom, so that tasks can fall through multiple levels at once
+		for (int level = top; level > 0; level--) {
+			TaskList list = wheel[level][(int) (time >>> (level * SLOT_BITS)) & SLOT_MASK];
+			if (list.isEmpty()) continue;
+
+			list.transferTo(scratch);
+
+			for (Task task : scratch) {
+				insert(task);
+			}
+
+			scratch.clear();
+		}
+
+		TaskList expired = wheel[0][(int) time & SLOT_MASK];
+		if (expired.isEmpty()) return;
+
+		size -= expired.size();
+		expired.transferTo(scratch);
+		scratch.sort(PRIORITY_ORDER);
+
+		for (Task task : scratch) {
+			task.queue = null;
+			out.add(task);
+		}
+
+		scratch.clear();
+	}
+
+	@Override
+	public void remove(@NotNull Task task) {
+		if (task.queue != this) return;
+		task.queue = null;
+		task.list.remove(task);
+		size--;
+	}
+
+	@Override
+	public void purge() {
+		// cancelled tasks are unlinked immediately
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int cancelledSize() {
+		return 0;
+	}
+}
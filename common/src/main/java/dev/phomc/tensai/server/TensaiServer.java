@@ -24,6 +24,8 @@
 
 package dev.phomc.tensai.server;
 
+import dev.phomc.tensai.keybinding.KeyStateStore;
+import dev.phomc.tensai.keybinding.PressedKeyIndex;
 import dev.phomc.tensai.scheduler.Scheduler;
 import dev.phomc.tensai.server.vfx.VisualEffects;
 import dev.phomc.tensai.server.vfx.animations.AnimationProperty;
@@ -50,6 +52,22 @@ public interface TensaiServer {
 	 */
 	Scheduler getTaskScheduler();
 
+	/**
+	 * Gets the store which holds the key states of online players.
+	 *
+	 * @return {@link KeyStateStore}
+	 */
+	KeyStateStore getKeyStateStore();
+
+	/**
+	 * Gets the index of the keys which online players are pressing.
+	 *
+	 * @return {@link PressedKeyIndex}
+	 */
+	default PressedKeyIndex getPressedKeyIndex() {
+		return getKeyStateStore().getPressedKeyIndex();
+	}
+
 	/**
 	 * Checks whether the current thread is the primary one.<br>
 	 * The primary thread is used to execute most activities on such as: ticking, event handling, etc. Besides, there
@@ -24,8 +24,12 @@
 
 package dev.phomc.tensai.server.client;
 
+import org.jetbrains.annotations.NotNull;
+
 import dev.phomc.tensai.keybinding.KeyBindingManager;
+import dev.phomc.tensai.networking.Capabilities;
 import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.message.Message;
 import dev.phomc.tensai.server.vfx.VisualEffects;
 
 /**
@@ -39,6 +43,50 @@ public interface ClientHandle {
 
 	void sendPluginMessage(Channel channel, byte[] bytes);
 
+	/**
+	 * Sends a message to the client.<br>
+	 * If the client supports {@link Capabilities.Feature#MESSAGE_BUNDLE}, the message is queued and flushed together
+	 * with other messages at the end of the tick. Otherwise, it is sent immediately.
+	 *
+	 * @param channel channel
+	 * @param message message
+	 * @see #sendMessageImmediately(Channel, Message)
+	 */
+	void sendMessage(Channel channel, Message message);
+
+	/**
+	 * Sends a message to the client without waiting for the end of the tick.<br>
+	 * This is meant for latency-critical messages. Platforms may encode the message directly into their network buffer
+	 * without intermediate byte arrays.
+	 *
+	 * @param channel channel
+	 * @param message message
+	 */
+	void sendMessageImmediately(Channel channel, Message message);
+
+	/**
+	 * Sends all queued messages.<br>
+	 * This is called by the platform at the end of every tick.
+	 */
+	void flushMessages();
+
+	/**
+	 * Gets the capabilities which are agreed with the client during the handshake.<br>
+	 * It is {@link Capabilities#LEGACY} until the handshake completes, or if the client does not support it.
+	 *
+	 * @return agreed capabilities
+	 */
+	@NotNull
+	Capabilities getCapabilities();
+
+	/**
+	 * Sets the agreed capabilities.<br>
+	 * <b>INTERNAL METHOD. DO NOT USE.</b>
+	 *
+	 * @param capabilities agreed capabilities
+	 */
+	void setCapabilities(@NotNull Capabilities capabilities);
+
 	/**
 	 * Gets the key binding manager.
 	 *
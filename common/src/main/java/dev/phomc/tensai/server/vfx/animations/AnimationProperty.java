@@ -28,6 +28,7 @@
 import java.io.DataOutput;
 import java.io.IOException;
 
+import dev.phomc.tensai.networking.StringTable;
 import dev.phomc.tensai.util.Serializer;
 import dev.phomc.tensai.util.Vec4;
 
@@ -41,7 +42,7 @@
 
 		@Override
 		public void serialize(AnimationProperty<?> obj, DataOutput stream) throws IOException {
-			stream.writeUTF(obj.name);
+			StringTable.writeString(stream, obj.name);
 			Object v = obj.value;
 
 			if (v instanceof Byte || v instanceof Short || v instanceof Integer || v instanceof Long) {
@@ -61,7 +62,7 @@ public void serialize(AnimationProperty<?> obj, DataOutput stream) throws IOExce
 
 		@Override
 		public AnimationProperty<?> deserialize(DataInput stream) throws IOException {
-			String name = stream.readUTF();
+			String name = StringTable.readString(stream);
 			int type = stream.readByte();
 
 			switch (type) {
@@ -0,0 +1,60 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.util;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A {@link ByteArrayOutputStream} which exposes its buffer, so that written bytes can be copied to their destination
+ * without {@link #toByteArray()}.<br>
+ * It is meant to be reused with {@link #reset()}, so that its buffer only grows once to the largest size written.
+ */
+public class ByteArrayOutput extends ByteArrayOutputStream {
+	public ByteArrayOutput() {
+	}
+
+	public ByteArrayOutput(int size) {
+		super(size);
+	}
+
+	/**
+	 * Gets the internal buffer.<br>
+	 * Only the first {@link #size()} bytes are valid. The buffer is replaced whenever it grows.
+	 *
+	 * @return the buffer
+	 */
+	public byte[] array() {
+		return buf;
+	}
+
+	/**
+	 * Gets the size of the internal buffer.
+	 *
+	 * @return number of bytes
+	 */
+	public int capacity() {
+		return buf.length;
+	}
+}
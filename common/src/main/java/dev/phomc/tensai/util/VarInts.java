@@ -0,0 +1,115 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Utilities to encode variable-length integers.<br>
+ * Integers are written 7 bits at a time from the least significant group, and the highest bit of each byte tells
+ * whether more bytes follow. Small non-negative values take a single byte. This is the same encoding as the one used
+ * by Minecraft packets.
+ */
+public final class VarInts {
+	/**
+	 * The maximum number of bytes of an encoded integer.
+	 */
+	public static final int MAX_SIZE = 5;
+
+	private VarInts() {
+	}
+
+	/**
+	 * Writes a variable-length integer.
+	 *
+	 * @param stream output
+	 * @param value  the value
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static void write(DataOutput stream, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			stream.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		stream.writeByte(value);
+	}
+
+	/**
+	 * Writes a variable-length integer into the given array.
+	 *
+	 * @param buffer the array, which must have at least {@link #size(int)} bytes from the offset
+	 * @param offset the index to write at
+	 * @param value  the value
+	 * @return the index after the written integer
+	 */
+	public static int write(byte[] buffer, int offset, int value) {
+		while ((value & ~0x7F) != 0) {
+			buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		buffer[offset++] = (byte) value;
+		return offset;
+	}
+
+	/**
+	 * Reads a variable-length integer.
+	 *
+	 * @param stream input
+	 * @return the value
+	 * @throws IOException if an I/O error occurs or the integer is longer than {@link #MAX_SIZE} bytes
+	 */
+	public static int read(DataInput stream) throws IOException {
+		int value = 0;
+
+		for (int i = 0; i < MAX_SIZE; i++) {
+			byte b = stream.readByte();
+			value |= (b & 0x7F) << (i * 7);
+			if ((b & 0x80) == 0) return value;
+		}
+
+		throw new IOException("VarInt is too big");
+	}
+
+	/**
+	 * Gets the number of bytes of an encoded integer.
+	 *
+	 * @param value the value
+	 * @return number of bytes
+	 */
+	public static int size(int value) {
+		int size = 1;
+
+		while ((value & ~0x7F) != 0) {
+			size++;
+			value >>>= 7;
+		}
+
+		return size;
+	}
+}
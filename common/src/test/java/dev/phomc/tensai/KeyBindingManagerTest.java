@@ -0,0 +1,231 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.phomc.tensai.keybinding.Key;
+import dev.phomc.tensai.keybinding.KeyBindingManager;
+import dev.phomc.tensai.keybinding.KeyState;
+import dev.phomc.tensai.keybinding.KeyStateChanges;
+import dev.phomc.tensai.keybinding.KeyStateSnapshot;
+import dev.phomc.tensai.keybinding.KeyStateStore;
+import dev.phomc.tensai.keybinding.PressedKeyIndex;
+import dev.phomc.tensai.networking.message.MessageType;
+import dev.phomc.tensai.networking.message.c2s.CompactKeyBindingStateUpdate;
+import dev.phomc.tensai.networking.message.c2s.KeyBindingStateView;
+import dev.phomc.tensai.server.client.ClientHandle;
+
+public class KeyBindingManagerTest {
+	@Test
+	public void applyStateTest() throws IOException {
+		ClientHandle client = client();
+		KeyBindingManager manager = new KeyBindingManager(client);
+
+		Map<Key, KeyState> states = new EnumMap<>(Key.class);
+		states.put(Key.KEY_A, new KeyState(1, true, KeyState.DIRTY_PRESSED));
+		states.put(Key.KEY_B, new KeyState(2, false, KeyState.DIRTY_TIME_PRESSED));
+		KeyStateChanges changes = manager.applyStateUpdate(decodeView(new CompactKeyBindingStateUpdate(states).pack()));
+		KeyState stateA = manager.getKeyState(Key.KEY_A);
+		Assertions.assertEquals(2, changes.size());
+		Assertions.assertEquals(Key.KEY_A, changes.getKey(0));
+		Assertions.assertSame(stateA, changes.getState(0));
+		Assertions.assertEquals(states, changes);
+
+		// existing states are updated in place, and keys which are not updated again become clean
+		states.clear();
+		states.put(Key.KEY_A, new KeyState(0, false, KeyState.DIRTY_PRESSED));
+		Assertions.assertSame(changes, manager.applyStateUpdate(decodeView(new CompactKeyBindingStateUpdate(states).pack())));
+		Assertions.assertSame(stateA, manager.getKeyState(Key.KEY_A));
+		Assertions.assertFalse(stateA.isPressed());
+		Assertions.assertEquals(1, changes.size());
+		Assertions.assertFalse(changes.containsKey(Key.KEY_B));
+		Assertions.assertEquals(0, manager.getKeyState(Key.KEY_B).getDirty());
+		Assertions.assertEquals(2, manager.getKeyState(Key.KEY_B).getTimesPressed());
+
+		KeyStateSnapshot snapshot = manager.snapshot();
+		Assertions.assertEquals(2L, snapshot.getVersion());
+		Assertions.assertEquals(manager.getVersion(), snapshot.getVersion());
+		Assertions.assertTrue(snapshot.isRegistered(Key.KEY_B));
+		Assertions.assertFalse(snapshot.isRegistered(Key.KEY_C));
+		Assertions.assertFalse(snapshot.isPressed(Key.KEY_A));
+		Assertions.assertEquals(KeyState.DIRTY_PRESSED, snapshot.getDirty(Key.KEY_A));
+		Assertions.assertEquals(0, snapshot.getDirty(Key.KEY_B));
+		Assertions.assertEquals(2, snapshot.getTimesPressed(Key.KEY_B));
+		Assertions.assertTrue(snapshot.hasChangedSince(Key.KEY_A, 1));
+		Assertions.assertFalse(snapshot.hasChangedSince(Key.KEY_B, 1));
+
+		// snapshots are immutable
+		manager.applyStateUpdate(decodeView(new CompactKeyBindingStateUpdate(states).pack()));
+		Assertions.assertEquals(2L, snapshot.getVersion());
+		Assertions.assertEquals(3L, manager.getVersion());
+	}
+
+	@Test
+	public void snapshotConsistencyTest() throws Exception {
+		ClientHandle client = client();
+		KeyBindingManager manager = new KeyBindingManager(client);
+		int updates = 2000;
+		KeyBindingStateView[] views = new KeyBindingStateView[updates];
+
+		// both keys always have the same number of presses within an update
+		for (int i = 0; i < updates; i++) {
+			Map<Key, KeyState> states = new EnumMap<>(Key.class);
+			states.put(Key.KEY_A, new KeyState(i, true, KeyState.DIRTY_TIME_PRESSED));
+			states.put(Key.KEY_Z, new KeyState(i, true, KeyState.DIRTY_TIME_PRESSED));
+			views[i] = new KeyBindingStateView(MessageType.KEYBINDING_STATE_UPDATE_COMPACT);
+			views[i].unpack(new CompactKeyBindingStateUpdate(states).pack());
+		}
+
+		Thread writer = new Thread(() -> {
+			for (KeyBindingStateView view : views) {
+				manager.applyStateUpdate(view);
+			}
+		});
+		writer.start();
+		long last = 0;
+
+		while (writer.isAlive()) {
+			KeyStateSnapshot snapshot = manager.snapshot();
+			Assertions.assertEquals(snapshot.getTimesPressed(Key.KEY_A), snapshot.getTimesPressed(Key.KEY_Z));
+			Assertions.assertTrue(snapshot.getVersion() >= last);
+			last = snapshot.getVersion();
+		}
+
+		writer.join();
+		Assertions.assertEquals((long) updates, manager.getVersion());
+		Assertions.assertEquals(updates - 1, manager.snapshot().getTimesPressed(Key.KEY_A));
+	}
+
+	@Test
+	public void pressedKeyIndexTest() throws IOException {
+		KeyStateStore store = new KeyStateStore();
+		PressedKeyIndex index = store.getPressedKeyIndex();
+		KeyBindingManager[] managers = new KeyBindingManager[70];
+		Map<Key, KeyState> states = new EnumMap<>(Key.class);
+
+		// even players hold A, every third one holds B as well; the index grows past the initial capacity
+		for (int i = 0; i < managers.length; i++) {
+			ClientHandle client = client();
+			managers[i] = new KeyBindingManager(client, store);
+			states.clear();
+			states.put(Key.KEY_A, new KeyState(0, i % 2 == 0, KeyState.DIRTY_PRESSED));
+			states.put(Key.KEY_B, new KeyState(0, i % 3 == 0, KeyState.DIRTY_PRESSED));
+			managers[i].applyStateUpdate(decodeView(new CompactKeyBindingStateUpdate(states).pack()));
+			Assertions.assertEquals(i, managers[i].getSlot());
+			Assertions.assertSame(client, index.getClient(i));
+		}
+
+		Assertions.assertEquals(35, index.getClients(index.getPressing(Key.KEY_A)).size());
+		Assertions.assertEquals(12, index.getClients(index.getPressingAll(Key.KEY_A, Key.KEY_B)).size());
+		Assertions.assertTrue(index.isPressing(66, Key.KEY_B));
+		Assertions.assertFalse(index.isPressing(67, Key.KEY_A));
+
+		// presses are collected until the tick ends
+		Assertions.assertEquals(0, index.getClients(index.getPressedLastTick(Key.KEY_A)).size());
+		index.tick();
+		Assertions.assertEquals(35, index.getClients(index.getPressedLastTick(Key.KEY_A)).size());
+
+		// releasing A is not a press, while another press of B is
+		states.clear();
+		states.put(Key.KEY_A, new KeyState(0, false, KeyState.DIRTY_PRESSED));
+		states.put(Key.KEY_B, new KeyState(1, false, KeyState.DIRTY_TIME_PRESSED));
+		managers[0].applyStateUpdate(decodeView(new CompactKeyBindingStateUpdate(states).pack()));
+		index.tick();
+		Assertions.assertFalse(index.isPressing(0, Key.KEY_A));
+		Assertions.assertEquals(0, index.getClients(index.getPressedLastTick(Key.KEY_A)).size());
+		Assertions.assertEquals(List.of(index.getClient(0)), index.getClients(index.getPressedLastTick(Key.KEY_B)));
+
+		// freed slots are cleared and reused, while the released manager keeps its states
+		managers[2].release();
+		Assertions.assertEquals(-1, managers[2].getSlot());
+		Assertions.assertFalse(index.isPressing(2, Key.KEY_A));
+		Assertions.assertTrue(index.getClient(2) == null);
+		Assertions.assertTrue(managers[2].getKeyState(Key.KEY_A).isPressed());
+		managers[2].applyStateUpdate(decodeView(new CompactKeyBindingStateUpdate(states).pack()));
+		Assertions.assertEquals(-1, managers[2].getSlot());
+		Assertions.assertEquals(1, managers[2].getKeyState(Key.KEY_B).getTimesPressed());
+		ClientHandle client = client();
+		KeyBindingManager manager = new KeyBindingManager(client, store);
+		Assertions.assertEquals(2, manager.getSlot());
+		Assertions.assertSame(client, index.getClient(2));
+		Assertions.assertTrue(manager.getRegisteredKeys().isEmpty());
+	}
+
+	@Test
+	public void keyStateStoreTest() throws IOException {
+		KeyStateStore store = new KeyStateStore();
+		KeyBindingManager[] managers = new KeyBindingManager[KeyStateStore.PAGE_SIZE + 2];
+		Map<Key, KeyState> states = new EnumMap<>(Key.class);
+
+		for (int i = 0; i < managers.length; i++) {
+			ClientHandle client = client();
+			managers[i] = new KeyBindingManager(client, store);
+			states.clear();
+			states.put(Key.KEY_F, new KeyState(i, i % 2 == 0, KeyState.DIRTY_TIME_PRESSED));
+			managers[i].applyStateUpdate(decodeView(new CompactKeyBindingStateUpdate(states).pack()));
+		}
+
+		// key states are views onto the store
+		KeyState state = managers[5].getKeyState(Key.KEY_F);
+		Assertions.assertSame(state, managers[5].getKeyState(Key.KEY_F));
+		Assertions.assertEquals(new KeyState(5, false, KeyState.DIRTY_TIME_PRESSED), state);
+		Assertions.assertTrue(managers[5].getKeyState(Key.KEY_G) == null);
+
+		// consumed presses do not affect the states received from the client
+		Assertions.assertTrue(state.wasPressed());
+		Assertions.assertEquals(4, state.getTimesPressed());
+		Assertions.assertEquals(5, managers[5].snapshot().getTimesPressed(Key.KEY_F));
+
+		int[] timesPressed = new int[managers.length];
+		AtomicInteger visited = new AtomicInteger();
+		store.forEach(Key.KEY_F, (slot, times, pressed) -> {
+			timesPressed[slot] = times;
+			visited.incrementAndGet();
+		});
+		Assertions.assertEquals(managers.length, visited.get());
+		Assertions.assertEquals(managers.length - 1, timesPressed[managers.length - 1]);
+		store.forEach(Key.KEY_G, (slot, times, pressed) -> visited.incrementAndGet());
+		Assertions.assertEquals(managers.length, visited.get());
+	}
+
+	private static KeyBindingStateView decodeView(byte[] data) throws IOException {
+		return KeyBindingStateView.COMPACT_TYPE.decode(new DataInputStream(new ByteArrayInputStream(data)));
+	}
+
+	private static ClientHandle client() {
+		return (ClientHandle) Proxy.newProxyInstance(KeyBindingManagerTest.class.getClassLoader(), new Class<?>[] {ClientHandle.class}, (proxy, method, args) -> null);
+	}
+}
@@ -0,0 +1,462 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.phomc.tensai.keybinding.Key;
+import dev.phomc.tensai.keybinding.KeyBinding;
+import dev.phomc.tensai.keybinding.KeyState;
+import dev.phomc.tensai.networking.Capabilities;
+import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.Compression;
+import dev.phomc.tensai.networking.OutboundQueue;
+import dev.phomc.tensai.networking.RejectedMessages;
+import dev.phomc.tensai.networking.StringTable;
+import dev.phomc.tensai.networking.Subscriber;
+import dev.phomc.tensai.networking.message.MessageDescriptor;
+import dev.phomc.tensai.networking.message.MessageType;
+import dev.phomc.tensai.networking.message.c2s.CompactKeyBindingStateUpdate;
+import dev.phomc.tensai.networking.message.c2s.HandshakeResponse;
+import dev.phomc.tensai.networking.message.c2s.KeyBindingRegisterResponse;
+import dev.phomc.tensai.networking.message.c2s.KeyBindingStateUpdate;
+import dev.phomc.tensai.networking.message.c2s.KeyBindingStateView;
+import dev.phomc.tensai.networking.message.s2c.HandshakeRequest;
+import dev.phomc.tensai.networking.message.s2c.KeyBindingRegisterMessage;
+import dev.phomc.tensai.networking.message.s2c.MessageBundle;
+import dev.phomc.tensai.util.VarInts;
+
+public class MessageTest {
+	@Test
+	public void stateUpdateTest() throws IOException {
+		Map<Key, KeyState> states = new EnumMap<>(Key.class);
+		states.put(Key.KEY_A, new KeyState(3, true, KeyState.DIRTY_PRESSED));
+		states.put(Key.KEY_SPACE, new KeyState(0, false, KeyState.DIRTY_TIME_PRESSED));
+
+		KeyBindingStateUpdate received = new KeyBindingStateUpdate();
+		received.readFrom(new DataInputStream(new ByteArrayInputStream(new KeyBindingStateUpdate(states).pack())));
+
+		Assertions.assertEquals(states.keySet(), received.getStates().keySet());
+
+		for (Map.Entry<Key, KeyState> entry : states.entrySet()) {
+			KeyState state = received.getStates().get(entry.getKey());
+			Assertions.assertEquals(entry.getValue().getTimesPressed(), state.getTimesPressed());
+			Assertions.assertEquals(entry.getValue().isPressed(), state.isPressed());
+			Assertions.assertEquals(entry.getValue().getDirty(), state.getDirty());
+		}
+	}
+
+	@Test
+	public void compactStateUpdateTest() throws IOException {
+		Map<Key, KeyState> states = new EnumMap<>(Key.class);
+		states.put(Key.KEY_A, new KeyState(3, true, KeyState.DIRTY_PRESSED));
+		states.put(Key.KEY_B, new KeyState(300, false, (byte) (KeyState.DIRTY_PRESSED | KeyState.DIRTY_TIME_PRESSED)));
+		states.put(Key.MOUSE_BUTTON_MIDDLE, new KeyState(15, true, KeyState.DIRTY_TIME_PRESSED));
+
+		byte[] compact = new CompactKeyBindingStateUpdate(states).pack();
+		Assertions.assertTrue(compact.length < new KeyBindingStateUpdate(states).pack().length);
+
+		KeyBindingStateUpdate received = new CompactKeyBindingStateUpdate();
+		received.readFrom(new DataInputStream(new ByteArrayInputStream(compact)));
+		Assertions.assertEquals(states.keySet(), received.getStates().keySet());
+
+		for (Map.Entry<Key, KeyState> entry : states.entrySet()) {
+			KeyState state = received.getStates().get(entry.getKey());
+			Assertions.assertEquals(entry.getValue().getTimesPressed(), state.getTimesPressed());
+			Assertions.assertEquals(entry.getValue().isPressed(), state.isPressed());
+			Assertions.assertEquals(entry.getValue().getDirty(), state.getDirty());
+		}
+
+		KeyBindingStateUpdate empty = new CompactKeyBindingStateUpdate();
+		empty.readFrom(new DataInputStream(new ByteArrayInputStream(new CompactKeyBindingStateUpdate().pack())));
+		Assertions.assertTrue(empty.getStates().isEmpty());
+	}
+
+	@Test
+	public void stateViewTest() throws IOException {
+		Map<Key, KeyState> states = new EnumMap<>(Key.class);
+		states.put(Key.KEY_A, new KeyState(3, true, KeyState.DIRTY_PRESSED));
+		states.put(Key.KEY_B, new KeyState(300, false, KeyState.DIRTY_TIME_PRESSED));
+
+		byte[] plain = new KeyBindingStateUpdate(states).pack();
+		byte[] compact = new CompactKeyBindingStateUpdate(states).pack();
+		KeyBindingStateView view = KeyBindingStateView.TYPE.decode(new DataInputStream(new ByteArrayInputStream(plain)));
+		KeyBindingStateView compactView = KeyBindingStateView.COMPACT_TYPE.decode(new DataInputStream(new ByteArrayInputStream(compact)));
+
+		for (KeyBindingStateView received : new KeyBindingStateView[] {view, compactView}) {
+			Assertions.assertEquals(states.size(), received.size());
+
+			// iterating twice gives the same entries
+			for (int pass = 0; pass < 2; pass++) {
+				Map<Key, KeyState> copy = new EnumMap<>(Key.class);
+				received.rewind();
+
+				while (received.next()) {
+					copy.put(received.getKey(), new KeyState(received.getTimesPressed(), received.isPressed(), received.getDirty()));
+				}
+
+				Assertions.assertEquals(states, copy);
+			}
+		}
+
+		// views are reused by the decoding thread
+		Assertions.assertSame(view, KeyBindingStateView.TYPE.decode(new DataInputStream(new ByteArrayInputStream(new KeyBindingStateUpdate().pack()))));
+		Assertions.assertEquals(0, view.size());
+		Assertions.assertFalse(view.next());
+		Assertions.assertThrows(IllegalStateException.class, view::getKey);
+	}
+
+	@Test
+	public void handshakeTest() throws IOException {
+		HandshakeRequest request = new HandshakeRequest();
+		request.unpack(new HandshakeRequest(Capabilities.LOCAL).pack());
+		Assertions.assertEquals(Capabilities.LOCAL, request.getCapabilities());
+
+		// a client which only knows the first protocol version and no feature
+		HandshakeResponse response = new HandshakeResponse();
+		response.unpack(new HandshakeResponse(new Capabilities(1, 0)).pack());
+		Capabilities agreed = Capabilities.LOCAL.negotiate(response.getCapabilities());
+		Assertions.assertEquals(Capabilities.LEGACY, agreed);
+		Assertions.assertFalse(agreed.has(Capabilities.Feature.COMPACT_KEY_STATE));
+
+		// a newer client with unknown features
+		Capabilities newer = Capabilities.LOCAL.negotiate(new Capabilities(Capabilities.PROTOCOL_VERSION + 1, -1));
+		Assertions.assertEquals(Capabilities.LOCAL, newer);
+		Assertions.assertTrue(newer.has(Capabilities.Feature.COMPACT_KEY_STATE));
+	}
+
+	@Test
+	public void bundleTest() throws IOException {
+		List<Channel> channels = new ArrayList<>();
+		List<byte[]> packets = new ArrayList<>();
+		OutboundQueue queue = new OutboundQueue();
+		OutboundQueue.Sink sink = (channel, data) -> {
+			channels.add(channel);
+			packets.add(data);
+		};
+
+		// a single message is sent as is
+		byte[] single = new HandshakeRequest(Capabilities.LOCAL).pack();
+		queue.add(Channel.HANDSHAKE, new HandshakeRequest(Capabilities.LOCAL));
+		queue.flush(sink);
+		Assertions.assertEquals(List.of(Channel.HANDSHAKE), channels);
+		Assertions.assertArrayEquals(single, packets.get(0));
+
+		channels.clear();
+		packets.clear();
+		queue.add(Channel.HANDSHAKE, new HandshakeRequest(Capabilities.LOCAL));
+		queue.add(Channel.KEYBINDING, new KeyBindingRegisterMessage(List.of(new KeyBinding(Key.KEY_R, "Reload"))));
+		queue.flush(sink);
+		Assertions.assertTrue(queue.isEmpty());
+		Assertions.assertEquals(List.of(Channel.BUNDLE), channels);
+
+		MessageBundle bundle = new MessageBundle();
+		bundle.unpack(packets.get(0));
+		Assertions.assertEquals(2, bundle.getEntries().size());
+		Assertions.assertEquals(Channel.HANDSHAKE, bundle.getEntries().get(0).getChannel());
+		Assertions.assertArrayEquals(single, bundle.getEntries().get(0).getData());
+		Assertions.assertEquals(Channel.KEYBINDING, bundle.getEntries().get(1).getChannel());
+
+		KeyBindingRegisterMessage register = new KeyBindingRegisterMessage();
+		register.unpack(bundle.getEntries().get(1).getData());
+		Assertions.assertEquals(Key.KEY_R, register.getKeymap().get(0).getKey());
+	}
+
+	@Test
+	public void bundleSplitTest() {
+		List<Channel> channels = new ArrayList<>();
+		List<byte[]> packets = new ArrayList<>();
+		OutboundQueue queue = new OutboundQueue();
+		OutboundQueue other = new OutboundQueue();
+		KeyBindingRegisterMessage message = new KeyBindingRegisterMessage(List.of(new KeyBinding(Key.KEY_R, "R".repeat(60000))));
+		byte[] large = message.pack();
+		int messages = OutboundQueue.MAX_BUNDLE_SIZE / large.length + 2;
+
+		for (int i = 0; i < messages; i++) {
+			queue.add(Channel.KEYBINDING, message);
+		}
+
+		// pending entries are moved as they are
+		queue.transferTo(other);
+		Assertions.assertTrue(queue.isEmpty());
+		other.flush((channel, data) -> {
+			channels.add(channel);
+			packets.add(data);
+		});
+
+		Assertions.assertEquals(List.of(Channel.BUNDLE, Channel.BUNDLE), channels);
+		int received = 0;
+
+		for (byte[] packet : packets) {
+			Assertions.assertTrue(packet.length <= OutboundQueue.MAX_BUNDLE_SIZE);
+			MessageBundle bundle = new MessageBundle();
+			bundle.unpack(packet);
+
+			for (MessageBundle.Entry entry : bundle.getEntries()) {
+				Assertions.assertArrayEquals(large, entry.getData());
+				received++;
+			}
+		}
+
+		Assertions.assertEquals(messages, received);
+	}
+
+	@Test
+	public void channelTest() {
+		Assertions.assertSame(Channel.VFX, Channel.byId(Channel.VFX.getId()));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> Channel.register(Channel.FIRST_CUSTOM_ID - 1, "test:reserved"));
+
+		Channel custom = Channel.register(200, "test:custom");
+		Assertions.assertSame(custom, Channel.byId(200));
+		Assertions.assertTrue(Channel.values().contains(custom));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> Channel.register(200, "test:duplicated"));
+
+		// channels of other plugins can only be delivered through the multiplexed channel
+		Capabilities multiplexed = new Capabilities(Capabilities.PROTOCOL_VERSION, Capabilities.Feature.MULTIPLEXED_CHANNEL.getMask());
+		Assertions.assertFalse(custom.isReachable(Capabilities.LEGACY));
+		Assertions.assertTrue(custom.isMultiplexed(multiplexed));
+		Assertions.assertTrue(Channel.KEYBINDING.isReachable(Capabilities.LEGACY));
+		Assertions.assertFalse(Channel.KEYBINDING.isMultiplexed(Capabilities.LEGACY));
+		Assertions.assertFalse(Channel.HANDSHAKE.isMultiplexed(multiplexed));
+	}
+
+	@Test
+	public void compressionTest() throws IOException {
+		List<KeyBinding> keymap = new ArrayList<>();
+
+		for (Key key : Key.values()) {
+			keymap.add(new KeyBinding(key, "Ability " + key.name()));
+		}
+
+		byte[] packed = new KeyBindingRegisterMessage(keymap).pack();
+		byte[] compressed = Compression.compress(packed);
+		Assertions.assertTrue(Compression.isCompressed(compressed[0]));
+		Assertions.assertTrue(compressed.length < packed.length);
+		Assertions.assertArrayEquals(packed, Compression.decompress(compressed, 0, compressed.length));
+
+		KeyBindingRegisterMessage received = new KeyBindingRegisterMessage();
+		received.unpack(Compression.decompress(compressed, 0, compressed.length));
+		Assertions.assertEquals(keymap.size(), received.getKeymap().size());
+
+		// small messages are sent as is
+		byte[] small = new HandshakeRequest(Capabilities.LOCAL).pack();
+		Assertions.assertSame(small, Compression.compress(small));
+		Assertions.assertFalse(Compression.reachesThreshold(small.length));
+		Assertions.assertTrue(Compression.reachesThreshold(packed.length));
+
+		int threshold = Compression.getThreshold();
+		Compression.setThreshold(-1);
+		Assertions.assertSame(packed, Compression.compress(packed));
+		Assertions.assertFalse(Compression.reachesThreshold(packed.length));
+		Compression.setThreshold(threshold);
+
+		// the declared size must match
+		compressed[1]++;
+		Assertions.assertThrows(IOException.class, () -> Compression.decompress(compressed, 0, compressed.length));
+	}
+
+	@Test
+	public void stringTableTest() throws IOException {
+		StringTable sender = new StringTable();
+		StringTable receiver = new StringTable();
+		KeyBindingRegisterMessage message = new KeyBindingRegisterMessage(List.of(new KeyBinding(Key.KEY_R, "Reload"), new KeyBinding(Key.KEY_F, "Reload")));
+
+		byte[] first = sender.encode(message);
+		byte[] second = sender.encode(message);
+		Assertions.assertTrue((first[0] & StringTable.FLAG) != 0);
+		Assertions.assertTrue(second.length < first.length);
+		Assertions.assertTrue(second.length < message.pack().length);
+
+		for (byte[] data : new byte[][] {first, second}) {
+			KeyBindingRegisterMessage received = decode(receiver, data);
+			Assertions.assertEquals("Reload", received.getKeymap().get(1).getName());
+		}
+
+		// evicted strings are defined again
+		List<KeyBinding> keymap = new ArrayList<>();
+
+		for (int i = 0; i < StringTable.CAPACITY; i++) {
+			keymap.add(new KeyBinding(Key.KEY_R, "Binding " + i));
+		}
+
+		decode(receiver, sender.encode(new KeyBindingRegisterMessage(keymap)));
+		Assertions.assertEquals("Reload", decode(receiver, sender.encode(message)).getKeymap().get(0).getName());
+
+		// a message does not redefine the slots it refers to, strings beyond the capacity are sent inline
+		keymap.add(0, new KeyBinding(Key.KEY_R, "Reload"));
+		List<KeyBinding> received = decode(receiver, sender.encode(new KeyBindingRegisterMessage(keymap))).getKeymap();
+
+		for (int i = 0; i < keymap.size(); i++) {
+			Assertions.assertEquals(keymap.get(i).getName(), received.get(i).getName());
+		}
+
+		// a new connection starts with empty tables
+		StringTable reconnected = new StringTable();
+		Assertions.assertThrows(IOException.class, () -> decode(reconnected, second));
+		sender.reset();
+		Assertions.assertEquals("Reload", decode(reconnected, sender.encode(message)).getKeymap().get(0).getName());
+	}
+
+	@Test
+	public void droppedDefinitionTest() throws IOException {
+		StringTable sender = new StringTable();
+		StringTable receiver = new StringTable();
+		KeyBindingRegisterMessage message = new KeyBindingRegisterMessage(List.of(new KeyBinding(Key.KEY_R, "Reload")));
+
+		// the first message is dropped once its definitions are stored, e.g: nobody listens to it
+		readDefinitions(receiver, sender.encode(message));
+		// the second one only refers to the slot
+		byte[] reference = sender.encode(message);
+		Assertions.assertEquals(0, reference[1]);
+		Assertions.assertEquals("Reload", decode(receiver, reference).getKeymap().get(0).getName());
+
+		// a malformed definition count
+		byte[] malformed = {(byte) (MessageType.KEYBINDING_REGISTER | StringTable.FLAG), (byte) 0xFF, 0x7F};
+		Assertions.assertThrows(IOException.class, () -> readDefinitions(receiver, malformed));
+	}
+
+	private static KeyBindingRegisterMessage decode(StringTable table, byte[] data) throws IOException {
+		KeyBindingRegisterMessage message = new KeyBindingRegisterMessage();
+		message.readFrom(table.wrap(new ByteArrayInputStream(readDefinitions(table, data))));
+		return message;
+	}
+
+	// the framing done by the client before a message is validated
+	private static byte[] readDefinitions(StringTable table, byte[] data) throws IOException {
+		DataInputStream stream = new DataInputStream(new ByteArrayInputStream(data));
+		byte id = (byte) (stream.readByte() & ~StringTable.FLAG);
+		table.readDefinitions(stream);
+		byte[] body = stream.readAllBytes();
+		byte[] message = new byte[body.length + 1];
+		message[0] = id;
+		System.arraycopy(body, 0, message, 1, body.length);
+		return message;
+	}
+
+	@Test
+	public void varIntTest() throws IOException {
+		for (int value : new int[] {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE}) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			VarInts.write(new DataOutputStream(bytes), value);
+			Assertions.assertEquals(VarInts.size(value), bytes.size());
+			Assertions.assertEquals(value, VarInts.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+
+			byte[] array = new byte[VarInts.size(value)];
+			Assertions.assertEquals(array.length, VarInts.write(array, 0, value));
+			Assertions.assertArrayEquals(bytes.toByteArray(), array);
+		}
+	}
+
+	@Test
+	public void unexpectedIdTest() {
+		byte[] data = new KeyBindingStateUpdate().pack();
+		Assertions.assertThrows(IOException.class, () -> new KeyBindingRegisterMessage().readFrom(new DataInputStream(new ByteArrayInputStream(data))));
+	}
+
+	@Test
+	public void subscriberTest() throws IOException {
+		AtomicInteger decoded = new AtomicInteger();
+		MessageDescriptor<HandshakeRequest> type = new MessageDescriptor<>(MessageType.HANDSHAKE_REQUEST, () -> {
+			decoded.incrementAndGet();
+			return new HandshakeRequest();
+		});
+		List<HandshakeRequest> received = new ArrayList<>();
+		Subscriber<String> subscriber = new Subscriber<>(Channel.HANDSHAKE) {
+			@Override
+			public void onInitialize() {
+				subscribe(type, (msg, sender) -> received.add(msg));
+				subscribe(type, (msg, sender) -> received.add(msg));
+			}
+		};
+		subscriber.onInitialize();
+
+		byte[] data = new HandshakeRequest(Capabilities.LOCAL).pack();
+		Assertions.assertTrue(subscriber.dispatch(data[0], new DataInputStream(new ByteArrayInputStream(data)), "server"));
+		Assertions.assertEquals(1, decoded.get());
+		Assertions.assertEquals(2, received.size());
+		Assertions.assertSame(received.get(0), received.get(1));
+		Assertions.assertEquals(Capabilities.LOCAL, received.get(0).getCapabilities());
+
+		Assertions.assertFalse(subscriber.dispatch(MessageType.HANDSHAKE_RESPONSE, new DataInputStream(new ByteArrayInputStream(new byte[0])), "server"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> subscriber.subscribe(HandshakeRequest.TYPE, (msg, sender) -> received.clear()));
+	}
+
+	@Test
+	public void limitTest() throws IOException {
+		Subscriber<String> subscriber = new Subscriber<>(Channel.KEYBINDING) {
+			@Override
+			public void onInitialize() {
+				subscribe(KeyBindingStateView.TYPE, (msg, sender) -> msg.rewind());
+			}
+		};
+		subscriber.onInitialize();
+
+		int maxSize = KeyBindingStateView.TYPE.getMaxSize();
+		long oversized = RejectedMessages.get(RejectedMessages.Reason.OVERSIZED);
+		long unknown = RejectedMessages.get(RejectedMessages.Reason.UNKNOWN);
+		Assertions.assertTrue(subscriber.accept(MessageType.KEYBINDING_STATE_UPDATE, maxSize));
+		Assertions.assertFalse(subscriber.accept(MessageType.KEYBINDING_STATE_UPDATE, maxSize + 1));
+		Assertions.assertFalse(subscriber.accept(MessageType.KEYBINDING_REGISTER_RESPONSE, 1));
+		Assertions.assertEquals(oversized + 1, RejectedMessages.get(RejectedMessages.Reason.OVERSIZED));
+		Assertions.assertEquals(unknown + 1, RejectedMessages.get(RejectedMessages.Reason.UNKNOWN));
+
+		// every key fits into the limit
+		Map<Key, KeyState> states = new EnumMap<>(Key.class);
+
+		for (Key key : Key.values()) {
+			states.put(key, new KeyState(Short.MAX_VALUE, true, (byte) 3));
+		}
+
+		Assertions.assertTrue(new KeyBindingStateUpdate(states).pack().length <= maxSize);
+		Assertions.assertTrue(new CompactKeyBindingStateUpdate(states).pack().length <= CompactKeyBindingStateUpdate.TYPE.getMaxSize());
+
+		// a count above the number of keys is rejected before reading any entry
+		byte[] tooMany = {MessageType.KEYBINDING_STATE_UPDATE, 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+		Assertions.assertThrows(IOException.class, () -> KeyBindingStateView.TYPE.decode(new DataInputStream(new ByteArrayInputStream(tooMany))));
+		byte[] unknownStatus = {MessageType.KEYBINDING_REGISTER_RESPONSE, 0, 0, 0, 1, 0, 0, 0, 65, (byte) 0xFF};
+		Assertions.assertThrows(IOException.class, () -> KeyBindingRegisterResponse.TYPE.decode(new DataInputStream(new ByteArrayInputStream(unknownStatus))));
+		byte[] hugeEntry = {MessageType.BUNDLE, 1, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+		Assertions.assertThrows(IOException.class, () -> MessageBundle.TYPE.decode(new DataInputStream(new ByteArrayInputStream(hugeEntry))));
+
+		// a compressed message may not expand beyond the limit
+		byte[] packed = new KeyBindingStateUpdate(states).pack();
+		byte[] compressed = Compression.compress(packed);
+		Assertions.assertTrue(Compression.isCompressed(compressed[0]));
+		Assertions.assertArrayEquals(packed, Compression.decompress(compressed, 0, compressed.length, packed.length));
+		Assertions.assertThrows(IOException.class, () -> Compression.decompress(compressed, 0, compressed.length, packed.length - 1));
+	}
+}
@@ -0,0 +1,543 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import dev.phomc.tensai.scheduler.AsyncExecutors;
+import dev.phomc.tensai.scheduler.AsyncTaskPool;
+import dev.phomc.tensai.scheduler.Scheduler;
+import dev.phomc.tensai.scheduler.SchedulerSnapshot;
+import dev.phomc.tensai.scheduler.SlicedTask;
+import dev.phomc.tensai.scheduler.Task;
+
+public class SchedulerTest {
+	@Test
+	public void timingWheelTest() {
+		for (long delay : new long[] {0, 1, 63, 64, 65, 4095, 4096, 4097, 300000}) {
+			TestScheduler scheduler = new TestScheduler(Scheduler.Backend.TIMING_WHEEL);
+			scheduler.tick(); // move away from tick 0
+			long[] executedAt = {-1};
+			scheduler.runSync(() -> executedAt[0] = scheduler.currentTick, delay);
+
+			while (executedAt[0] == -1) scheduler.tick();
+
+			Assertions.assertEquals(1 + delay, executedAt[0], "delay " + delay);
+			Assertions.assertEquals(0, scheduler.getPendingTasks());
+		}
+	}
+
+	@Test
+	public void cancellationTest() {
+		for (Scheduler.Backend backend : Scheduler.Backend.values()) {
+			TestScheduler scheduler = new TestScheduler(backend);
+			List<Task> tasks = new ArrayList<>();
+			int[] executed = {0};
+			// the ticking thread becomes the primary one
+			scheduler.tick();
+
+			for (int i = 0; i < 1000; i++) {
+				Task task = new Task.Builder().setExecutor(() -> executed[0]++).build();
+				scheduler.schedule(task, 100 + i);
+				tasks.add(task);
+			}
+
+			for (int i = 0; i < 900; i++) {
+				tasks.get(i).cancel();
+			}
+
+			Assertions.assertEquals(100, scheduler.getPendingTasks());
+			Assertions.assertTrue(scheduler.getCancelledTasks() < 100, backend.name());
+			scheduler.purge();
+			Assertions.assertEquals(0, scheduler.getCancelledTasks());
+			Assertions.assertEquals(100, scheduler.getPendingTasks());
+
+			while (scheduler.getPendingTasks() > 0) scheduler.tick();
+
+			Assertions.assertEquals(100, executed[0]);
+		}
+	}
+
+	@Test
+	public void asyncPurgeTest() throws InterruptedException {
+		TestScheduler scheduler = new TestScheduler(Scheduler.Backend.PRIORITY_QUEUE);
+		scheduler.tick();
+
+		for (int i = 0; i < 100; i++) {
+			Task task = new Task.Builder().setExecutor(Thread::yield).build();
+			scheduler.schedule(task, 100);
+			if (i % 2 == 0) task.cancel();
+		}
+
+		int cancelled = scheduler.getCancelledTasks();
+		Assertions.assertTrue(cancelled > 0);
+		Thread thread = new Thread(scheduler::purge);
+		thread.start();
+		thread.join();
+
+		// the queue is only touched by the primary thread
+		Assertions.assertEquals(cancelled, scheduler.getCancelledTasks());
+		scheduler.tick();
+		Assertions.assertEquals(0, scheduler.getCancelledTasks());
+		Assertions.assertEquals(50, scheduler.getPendingTasks());
+	}
+
+	@Test
+	public void asyncExecutorTest() throws InterruptedException {
+		TestScheduler scheduler = new TestScheduler(Scheduler.Backend.TIMING_WHEEL);
+		AsyncTaskPool pool = AsyncExecutors.newBoundedPool("test-async", 2, 16);
+		scheduler.setAsyncExecutor(pool);
+
+		CountDownLatch latch = new CountDownLatch(10);
+		String[] threadName = new String[1];
+
+		for (int i = 0; i < 10; i++) {
+			scheduler.runAsync(() -> {
+				threadName[0] = Thread.currentThread().getName();
+				latch.countDown();
+			}, i);
+		}
+
+		while (scheduler.getPendingTasks() > 0) scheduler.tick();
+
+		Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+		Assertions.assertTrue(threadName[0].startsWith("test-async-"));
+		Assertions.assertEquals(10, pool.getSubmittedTaskCount());
+		pool.shutdown();
+
+		if (AsyncExecutors.isVirtualThreadSupported()) {
+			ExecutorService executor = AsyncExecutors.newVirtualThreadExecutor("test-virtual");
+			CountDownLatch virtualLatch = new CountDownLatch(1);
+			scheduler.setAsyncExecutor(executor);
+			scheduler.runAsync(virtualLatch::countDown);
+			scheduler.tick();
+			Assertions.assertTrue(virtualLatch.await(5, TimeUnit.SECONDS));
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void tickBudgetTest() {
+		TestScheduler scheduler = new TestScheduler(Scheduler.Backend.TIMING_WHEEL);
+		scheduler.setTickBudget(1);
+		List<String> log = new ArrayList<>();
+
+		for (int i = 0; i < 3; i++) {
+			int id = i;
+			scheduler.schedule(new Task.Builder().setPriority(-id).setExecutor(() -> {
+				log.add(scheduler.currentTick + ":" + id);
+				LockSupport.parkNanos(1_000_000);
+			}).build(), 0);
+		}
+
+		scheduler.schedule(new Task.Builder().setExecutor(() -> log.add(scheduler.currentTick + ":late")).build(), 1);
+
+		while (scheduler.getPendingTasks() > 0 || log.size() < 4) scheduler.tick();
+
+		// one synchronous task per tick, and carried-over tasks run before newly due ones
+		Assertions.assertEquals(List.of("0:0", "1:1", "2:2", "3:late"), log);
+		Assertions.assertEquals(5, scheduler.getDeferredTaskCount());
+		Assertions.assertEquals(2, scheduler.getMaxCarryOverAge());
+	}
+
+	@Test
+	public void continuationTest() throws Exception {
+		TestScheduler scheduler = new TestScheduler(Scheduler.Backend.TIMING_WHEEL);
+		AsyncTaskPool pool = AsyncExecutors.newBoundedPool("test-async", 2, 16);
+		scheduler.setAsyncExecutor(pool);
+		scheduler.tick();
+		Thread mainThread = Thread.currentThread();
+
+		CompletableFuture<Thread> future = scheduler.supplyAsync(() -> 21)
+				.thenApplyAsync(value -> Thread.currentThread(), scheduler.getMainThreadExecutor());
+		CompletableFuture<Integer> call = CompletableFuture.supplyAsync(() -> scheduler.callSync(() -> 42), pool)
+				.thenCompose(Function.identity());
+		CompletableFuture<Object> failure = CompletableFuture.supplyAsync(() -> scheduler.callSync(() -> {
+			throw new IllegalStateException();
+		}), pool).thenCompose(Function.identity());
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+		while (!(future.isDone() && call.isDone() && failure.isDone()) && System.nanoTime() < deadline) {
+			scheduler.tick();
+			Thread.yield();
+		}
+
+		Assertions.assertEquals(mainThread, future.get());
+		Assertions.assertEquals(42, (int) call.get());
+		Assertions.assertTrue(failure.isCompletedExceptionally());
+		// the primary thread short-circuits
+		Assertions.assertTrue(scheduler.callSync(() -> 1).isDone());
+		pool.shutdown();
+	}
+
+	@Test
+	public void laneFailureTest() {
+		TestScheduler scheduler = new TestScheduler(Scheduler.Backend.TIMING_WHEEL);
+		AtomicInteger accepted = new AtomicInteger();
+		List<Runnable> lanes = new ArrayList<>();
+		List<Integer> log = new ArrayList<>();
+
+		// rejects the first lane, and keeps the others until they are run below
+		scheduler.setAsyncExecutor(command -> {
+			if (accepted.getAndIncrement() == 0) throw new RejectedExecutionException();
+			lanes.add(command);
+		});
+		scheduler.runAsync("key", () -> log.add(0));
+		scheduler.tick();
+
+		Assertions.assertEquals(0, scheduler.getActiveLanes());
+		Assertions.assertTrue(scheduler.exceptions.get(0) instanceof RejectedExecutionException);
+
+		// a failing command does not stall the lane, and the lane drains its commands without being re-submitted
+		scheduler.runAsync("key", () -> {
+			throw new IllegalStateException();
+		});
+
+		for (int i = 1; i <= 10000; i++) {
+			int value = i;
+			scheduler.runAsync("key", () -> log.add(value));
+		}
+
+		scheduler.tick();
+		Assertions.assertEquals(1, lanes.size());
+		lanes.get(0).run();
+
+		Assertions.assertEquals(1, lanes.size());
+		Assertions.assertEquals(0, scheduler.getActiveLanes());
+		Assertions.assertEquals(10000, log.size());
+		Assertions.assertEquals(10000, (int) log.get(9999));
+		Assertions.assertTrue(scheduler.exceptions.get(1) instanceof IllegalStateException);
+	}
+
+	@Test
+	public void rejectionTest() throws InterruptedException {
+		TestScheduler scheduler = new TestScheduler(Scheduler.Backend.PRIORITY_QUEUE);
+		AsyncTaskPool pool = AsyncExecutors.newBoundedPool("test-async", 1, 1);
+		scheduler.setAsyncExecutor(pool);
+		scheduler.tick();
+
+		CountDownLatch blocker = new CountDownLatch(1);
+		Thread mainThread = Thread.currentThread();
+		AtomicInteger onMainThread = new AtomicInteger();
+		Runnable task = () -> {
+			if (Thread.currentThread() == mainThread) onMainThread.incrementAndGet();
+		};
+
+		// occupies the only thread, then the only queue slot, then is rejected
+		scheduler.runAsync(() -> {
+			try {
+				blocker.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		scheduler.runAsync(task);
+		scheduler.runAsync(task);
+		scheduler.tick();
+
+		Assertions.assertEquals(0, onMainThread.get());
+		Assertions.assertEquals(1L, pool.getRejectedTaskCount());
+		Assertions.assertEquals(1, scheduler.exceptions.size());
+		Assertions.assertTrue(scheduler.exceptions.get(0) instanceof RejectedExecutionException);
+
+		blocker.countDown();
+		pool.shutdown();
+		Assertions.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+		scheduler.runAsync(task);
+		scheduler.tick();
+
+		Assertions.assertEquals(0, onMainThread.get());
+		Assertions.assertEquals(2L, pool.getRejectedTaskCount());
+		Assertions.assertEquals(2, scheduler.exceptions.size());
+	}
+
+	@Test
+	public void failingContinuationTest() {
+		TestScheduler scheduler = new TestScheduler(Scheduler.Backend.PRIORITY_QUEUE);
+		AtomicInteger executed = new AtomicInteger();
+		Executor executor = scheduler.getMainThreadExecutor();
+
+		// submitted before the first tick, so they are queued as continuations
+		executor.execute(() -> {
+			throw new IllegalStateException();
+		});
+		executor.execute(executed::incrementAndGet);
+		scheduler.tick();
+
+		Assertions.assertEquals(1, executed.get());
+		Assertions.assertEquals(1, scheduler.exceptions.size());
+		Assertions.assertTrue(scheduler.exceptions.get(0) instanceof IllegalStateException);
+	}
+
+	@Test
+	public void inboxTest() throws InterruptedException {
+		TestScheduler scheduler = new TestScheduler(Scheduler.Backend.TIMING_WHEEL);
+		scheduler.tick();
+		AtomicInteger executed = new AtomicInteger();
+		Task cancelled = new Task.Builder().setExecutor(executed::incrementAndGet).build();
+		scheduler.schedule(cancelled, 10);
+		Thread[] producers = new Thread[4];
+
+		for (int i = 0; i < producers.length; i++) {
+			producers[i] = new Thread(() -> {
+				for (int j = 0; j < 1000; j++) {
+					scheduler.runSync(executed::incrementAndGet, j % 20);
+				}
+			});
+			producers[i].start();
+		}
+
+		Thread canceller = new Thread(cancelled::cancel);
+		canceller.start();
+		canceller.join();
+
+		for (Thread producer : producers) producer.join();
+
+		while (scheduler.getPendingTasks() > 0) scheduler.tick();
+
+		Assertions.assertEquals(4000, executed.get());
+	}
+
+	@Test
+	public void keyedLaneTest() throws InterruptedException {
+		TestScheduler scheduler = new TestScheduler(Scheduler.Backend.TIMING_WHEEL);
+		AsyncTaskPool pool = AsyncExecutors.newBoundedPool("test-async", 4, 4096);
+		scheduler.setAsyncExecutor(pool);
+		scheduler.tick();
+
+		int keys = 4;
+		int tasks = 500;
+		List<List<Integer>> logs = new ArrayList<>();
+		AtomicInteger[] running = new AtomicInteger[keys];
+		AtomicInteger overlaps = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(keys * tasks);
+
+		for (int k = 0; k < keys; k++) {
+			logs.add(new ArrayList<>());
+			running[k] = new AtomicInteger();
+		}
+
+		for (int i = 0; i < tasks; i++) {
+			for (int k = 0; k < keys; k++) {
+				int key = k;
+				int id = i;
+				scheduler.runAsync("key-" + key, () -> {
+					if (running[key].incrementAndGet() > 1) overlaps.incrementAndGet();
+					logs.get(key).add(id);
+					running[key].decrementAndGet();
+					latch.countDown();
+				});
+			}
+
+			if (i % 50 == 0) scheduler.tick();
+		}
+
+		while (scheduler.getPendingTasks() > 0) scheduler.tick();
+
+		Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+		Assertions.assertEquals(0, overlaps.get());
+
+		for (List<Integer> log : logs) {
+			for (int i = 0; i < tasks; i++) {
+				Assertions.assertEquals(i, (int) log.get(i));
+			}
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (scheduler.getActiveLanes() > 0 && System.nanoTime() < deadline) Thread.yield();
+		Assertions.assertEquals(0, scheduler.getActiveLanes());
+		pool.shutdown();
+	}
+
+	@Test
+	public void metricsTest() {
+		TestScheduler scheduler = new TestScheduler(Scheduler.Backend.TIMING_WHEEL);
+		scheduler.tick();
+		scheduler.runSync(() -> {
+			// ignored while metrics are disabled
+		});
+		scheduler.tick();
+		Assertions.assertFalse(scheduler.snapshot().isMetricsEnabled());
+
+		scheduler.setMetricsEnabled(true);
+		scheduler.schedule(new Task.Builder().setName("slow").setExecutor(() -> LockSupport.parkNanos(2_000_000)).build(), 1);
+		scheduler.schedule(new Task.Builder().setName("fast").setRecurringTimes(9).setExecutor(() -> {
+			// no-op
+		}).build());
+		new Task.Builder().setExecutor(() -> {
+			// never scheduled
+		}).build().cancel();
+		Task cancelled = new Task.Builder().setExecutor(() -> {
+			// cancelled
+		}).build();
+		scheduler.schedule(cancelled, 100);
+		cancelled.cancel();
+		cancelled.cancel();
+
+		while (scheduler.getPendingTasks() > 0) scheduler.tick();
+
+		SchedulerSnapshot snapshot = scheduler.snapshot();
+		Assertions.assertTrue(snapshot.isMetricsEnabled());
+		Assertions.assertEquals(11, snapshot.getExecutedTasks());
+		Assertions.assertEquals(1, snapshot.getCancelledTasks());
+		Assertions.assertEquals(2, snapshot.getTasks().size());
+
+		SchedulerSnapshot.TaskSnapshot slow = snapshot.getTasks().get(0);
+		Assertions.assertEquals("slow", slow.getName());
+		Assertions.assertEquals(1, slow.getCount());
+		Assertions.assertTrue(slow.getMaxTime() >= 2_000_000);
+		Assertions.assertTrue(slow.getP99Time() <= slow.getMaxTime());
+		Assertions.assertEquals(10, snapshot.getTasks().get(1).getCount());
+		Assertions.assertFalse(snapshot.format(10).isEmpty());
+
+		scheduler.setMetricsEnabled(false);
+		Assertions.assertFalse(scheduler.snapshot().isMetricsEnabled());
+	}
+
+	@Test
+	public void recurrenceTest() {
+		Assertions.assertEquals(List.of(2L, 5L, 8L, 11L, 14L), recurrenceLog(Task.Recurrence.FIXED_DELAY, Task.CatchUpPolicy.COALESCE, false));
+		Assertions.assertEquals(List.of(2L, 11L, 14L, 17L, 20L), recurrenceLog(Task.Recurrence.FIXED_DELAY, Task.CatchUpPolicy.COALESCE, true));
+		Assertions.assertEquals(List.of(2L, 11L, 12L, 13L, 14L), recurrenceLog(Task.Recurrence.FIXED_RATE, Task.CatchUpPolicy.RUN_ALL, true));
+		Assertions.assertEquals(List.of(2L, 11L, 12L, 14L, 17L), recurrenceLog(Task.Recurrence.FIXED_RATE, Task.CatchUpPolicy.COALESCE, true));
+		Assertions.assertEquals(List.of(2L, 11L, 14L, 17L, 20L), recurrenceLog(Task.Recurrence.FIXED_RATE, Task.CatchUpPolicy.SKIP, true));
+	}
+
+	private static List<Long> recurrenceLog(Task.Recurrence recurrence, Task.CatchUpPolicy policy, boolean lag) {
+		TestScheduler scheduler = new TestScheduler(Scheduler.Backend.TIMING_WHEEL);
+		scheduler.tick();
+		scheduler.setTickBudget(1);
+		List<Long> log = new ArrayList<>();
+		scheduler.schedule(new Task.Builder()
+				.setInterval(3)
+				.setRecurringTimes(4)
+				.setRecurrence(recurrence)
+				.setCatchUpPolicy(policy)
+				.setExecutor(() -> log.add(scheduler.currentTick))
+				.build(), 1);
+
+		// the budget lets one blocker run per tick, so the execution due at tick 5 is delayed until tick 11
+		for (int i = 0; lag && i < 6; i++) {
+			scheduler.schedule(new Task.Builder().setPriority(10).setExecutor(() -> LockSupport.parkNanos(1_000_000)).build(), 4);
+		}
+
+		while (scheduler.getPendingTasks() > 0) scheduler.tick();
+
+		return log;
+	}
+
+	@Test
+	public void slicedTaskTest() throws Exception {
+		TestScheduler scheduler = new TestScheduler(Scheduler.Backend.TIMING_WHEEL);
+		scheduler.tick();
+
+		// a zero budget executes exactly one step per tick
+		int[] counter = {0};
+		SlicedTask stepwise = scheduler.runSliced(() -> ++counter[0] < 5, 0);
+		List<Integer> items = new ArrayList<>();
+		SlicedTask iteration = scheduler.runSliced(List.of(1, 2, 3, 4, 5, 6, 7, 8).iterator(), items::add, Long.MAX_VALUE);
+		SlicedTask failing = scheduler.runSliced(() -> {
+			throw new IllegalStateException();
+		}, 0);
+		SlicedTask cancelled = scheduler.runSliced(() -> true, 0);
+		scheduler.tick();
+		cancelled.cancel();
+
+		while (scheduler.getPendingTasks() > 0) scheduler.tick();
+
+		Assertions.assertEquals(5, (long) stepwise.getFuture().get());
+		Assertions.assertEquals(5, stepwise.getSlices());
+		Assertions.assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8), items);
+		Assertions.assertEquals(1, iteration.getSlices());
+		Assertions.assertTrue(failing.getFuture().isCompletedExceptionally());
+		Assertions.assertTrue(cancelled.getFuture().isCancelled());
+		Assertions.assertEquals(1, cancelled.getSteps());
+	}
+
+	@Test
+	public void backendEquivalenceTest() {
+		List<String> heap = simulate(Scheduler.Backend.PRIORITY_QUEUE);
+		List<String> wheel = simulate(Scheduler.Backend.TIMING_WHEEL);
+		Assertions.assertEquals(heap, wheel);
+	}
+
+	private List<String> simulate(Scheduler.Backend backend) {
+		TestScheduler scheduler = new TestScheduler(backend);
+		Random random = new Random(42);
+		List<String> log = new ArrayList<>();
+
+		for (int i = 0; i < 2000; i++) {
+			int id = i;
+			// distinct priorities keep the expected order deterministic
+			scheduler.schedule(new Task.Builder()
+					.setPriority(id)
+					.setRecurringTimes(random.nextInt(3))
+					.setInterval(1 + random.nextInt(100))
+					.setExecutor(() -> log.add(scheduler.currentTick + ":" + id))
+					.build(), random.nextInt(5000));
+
+			if (random.nextInt(10) == 0) scheduler.tick();
+		}
+
+		while (scheduler.getPendingTasks() > 0) scheduler.tick();
+
+		return log;
+	}
+
+	private static class TestScheduler extends Scheduler {
+		private final List<Throwable> exceptions = new ArrayList<>();
+		private long currentTick = -1;
+
+		TestScheduler(Backend backend) {
+			super(backend);
+		}
+
+		void tick() {
+			currentTick++;
+			onTick();
+		}
+
+		@Override
+		protected void handleException(@NotNull String message, @NotNull Throwable throwable) {
+			exceptions.add(throwable);
+		}
+	}
+}
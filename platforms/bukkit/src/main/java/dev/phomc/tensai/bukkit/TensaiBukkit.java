@@ -24,9 +24,12 @@
 
 package dev.phomc.tensai.bukkit;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,12 +38,16 @@
 import org.bukkit.plugin.java.JavaPlugin;
 
 import dev.phomc.tensai.bukkit.client.ClientHandleImpl;
+import dev.phomc.tensai.bukkit.command.TensaiCommand;
 import dev.phomc.tensai.bukkit.event.listeners.PlayerJoinListener;
 import dev.phomc.tensai.bukkit.event.listeners.PlayerQuitListener;
 import dev.phomc.tensai.bukkit.keybinding.KeyBindingMessageSubscriber;
+import dev.phomc.tensai.bukkit.networking.HandshakeMessageSubscriber;
+import dev.phomc.tensai.bukkit.networking.MultiplexedMessageListener;
 import dev.phomc.tensai.bukkit.networking.ServerSubscriber;
 import dev.phomc.tensai.bukkit.scheduler.ServerScheduler;
 import dev.phomc.tensai.bukkit.vfx.GlobalVisualEffectsImpl;
+import dev.phomc.tensai.keybinding.KeyStateStore;
 import dev.phomc.tensai.networking.Channel;
 import dev.phomc.tensai.scheduler.Scheduler;
 import dev.phomc.tensai.server.TensaiServer;
@@ -49,22 +56,42 @@
 
 public class TensaiBukkit extends JavaPlugin implements TensaiServer {
 	// Wrappers
-	private static final Map<UUID, ClientHandle> CLIENTS = new HashMap<>();
+	private static final Map<UUID, ClientHandle> CLIENTS = new ConcurrentHashMap<>();
+	private static final List<String> PLUGIN_CHANNELS = new ArrayList<>();
 	private static TensaiBukkit INSTANCE;
 	public static final Logger LOGGER = LoggerFactory.getLogger("tensai");
 	private GlobalVisualEffectsImpl globalVfx;
 	private Scheduler scheduler;
+	private final KeyStateStore keyStateStore = new KeyStateStore();
 
 	public static TensaiBukkit getInstance() {
 		return INSTANCE;
 	}
 
 	public static ClientHandle getClient(Player player) {
-		return CLIENTS.computeIfAbsent(player.getUniqueId(), u -> new ClientHandleImpl(INSTANCE, player));
+		ClientHandle client = CLIENTS.get(player.getUniqueId());
+		if (client != null) return client;
+		if (player.isOnline()) return CLIENTS.computeIfAbsent(player.getUniqueId(), u -> new ClientHandleImpl(INSTANCE, player));
+
+		// the player has quit, so a tracked handle would never be removed again
+		ClientHandleImpl detached = new ClientHandleImpl(INSTANCE, player);
+		detached.release();
+		return detached;
+	}
+
+	/**
+	 * Gets the plugin channels used by Tensai: the multiplexed one and the ones of built-in channels for clients
+	 * without multiplexing. This does not grow with channels of other plugins.
+	 *
+	 * @return an unmodifiable list of plugin channels
+	 */
+	public static List<String> getPluginChannels() {
+		return Collections.unmodifiableList(PLUGIN_CHANNELS);
 	}
 
 	public static void internalReset(Player player) {
-		CLIENTS.remove(player.getUniqueId());
+		ClientHandle client = CLIENTS.remove(player.getUniqueId());
+		if (client instanceof ClientHandleImpl) ((ClientHandleImpl) client).release();
 	}
 
 	@Override
@@ -72,11 +99,20 @@ public void onEnable() {
 		INSTANCE = this;
 
 		// Plugin messaging channels
+		PLUGIN_CHANNELS.clear();
+		PLUGIN_CHANNELS.add(Channel.MULTIPLEXED_NAMESPACE);
+
 		for (Channel channel : Channel.values()) {
-			getServer().getMessenger().registerOutgoingPluginChannel(this, channel.getNamespace());
+			if (channel.isBuiltin()) PLUGIN_CHANNELS.add(channel.getNamespace());
 		}
 
+		for (String channel : PLUGIN_CHANNELS) {
+			getServer().getMessenger().registerOutgoingPluginChannel(this, channel);
+		}
+
+		getServer().getMessenger().registerIncomingPluginChannel(this, Channel.MULTIPLEXED_NAMESPACE, new MultiplexedMessageListener());
 		registerIncomingMessenger(new KeyBindingMessageSubscriber(Channel.KEYBINDING));
+		registerIncomingMessenger(new HandshakeMessageSubscriber(Channel.HANDSHAKE));
 
 		// Events
 		getServer().getPluginManager().registerEvents(new PlayerJoinListener(), this);
@@ -84,6 +120,18 @@ public void onEnable() {
 
 		globalVfx = new GlobalVisualEffectsImpl(this);
 		scheduler = new ServerScheduler(this);
+
+		// Outbound messages are flushed once per tick
+		getServer().getScheduler().runTaskTimer(this, () -> {
+			for (ClientHandle client : CLIENTS.values()) {
+				client.flushMessages();
+			}
+
+			keyStateStore.getPressedKeyIndex().tick();
+		}, 0, 1);
+
+		// Commands
+		getCommand(TensaiCommand.COMMAND).setExecutor(new TensaiCommand(this));
 	}
 
 	@Override
@@ -91,7 +139,11 @@ public void onDisable() {
 	}
 
 	private void registerIncomingMessenger(ServerSubscriber subscriber) {
-		getServer().getMessenger().registerIncomingPluginChannel(this, subscriber.getChannel().getNamespace(), subscriber);
+		// other channels are only received through the multiplexed channel
+		if (subscriber.getChannel().isBuiltin()) {
+			getServer().getMessenger().registerIncomingPluginChannel(this, subscriber.getChannel().getNamespace(), subscriber);
+		}
+
 		subscriber.onInitialize();
 	}
 
@@ -106,6 +158,11 @@ public Scheduler getTaskScheduler() {
 		return scheduler;
 	}
 
+	@Override
+	public KeyStateStore getKeyStateStore() {
+		return keyStateStore;
+	}
+
 	@Override
 	public boolean isPrimaryThread() {
 		return getServer().isPrimaryThread();
@@ -27,15 +27,22 @@
 import java.lang.ref.WeakReference;
 
 import com.google.common.base.Preconditions;
+import org.jetbrains.annotations.NotNull;
 
 import org.bukkit.entity.Player;
 
 import dev.phomc.tensai.bukkit.TensaiBukkit;
 import dev.phomc.tensai.bukkit.vfx.ClientVisualEffectsImpl;
 import dev.phomc.tensai.keybinding.KeyBindingManager;
+import dev.phomc.tensai.networking.Capabilities;
 import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.Compression;
+import dev.phomc.tensai.networking.OutboundQueue;
+import dev.phomc.tensai.networking.StringTable;
+import dev.phomc.tensai.networking.message.Message;
 import dev.phomc.tensai.server.client.ClientHandle;
 import dev.phomc.tensai.server.vfx.VisualEffects;
+import dev.phomc.tensai.util.VarInts;
 
 public class ClientHandleImpl implements ClientHandle {
 	private TensaiBukkit plugin;
@@ -43,6 +50,10 @@ public class ClientHandleImpl implements ClientHandle {
 
 	private ClientVisualEffectsImpl vfx;
 	private KeyBindingManager keyBindingManager;
+	private boolean released;
+	private volatile Capabilities capabilities = Capabilities.LEGACY;
+	private final OutboundQueue outboundQueue = new OutboundQueue();
+	private final StringTable stringTable = new StringTable();
 
 	public ClientHandleImpl(TensaiBukkit plugin, Player player) {
 		Preconditions.checkNotNull(plugin);
@@ -61,7 +72,38 @@ public Player getPlayer() {
 	public void sendPluginMessage(Channel channel, byte[] bytes) {
 		Player p = getPlayer();
 		if (p == null) return; // TODO: player is dereferenced, maybe throw an exception?
-		p.sendPluginMessage(plugin, channel.getNamespace(), bytes);
+		if (capabilities.has(Capabilities.Feature.COMPRESSION)) bytes = Compression.compress(bytes);
+
+		if (channel.isMultiplexed(capabilities)) {
+			byte[] framed = new byte[VarInts.size(channel.getId()) + bytes.length];
+			int offset = VarInts.write(framed, 0, channel.getId());
+			System.arraycopy(bytes, 0, framed, offset, bytes.length);
+			p.sendPluginMessage(plugin, Channel.MULTIPLEXED_NAMESPACE, framed);
+		} else if (channel.isBuiltin()) {
+			p.sendPluginMessage(plugin, channel.getNamespace(), bytes);
+		} else {
+			TensaiBukkit.LOGGER.debug("Dropped message at channel {} since the client does not support multiplexing", channel);
+		}
+	}
+
+	@Override
+	public void sendMessage(Channel channel, Message message) {
+		if (capabilities.has(Capabilities.Feature.MESSAGE_BUNDLE)) {
+			outboundQueue.add(channel, message, capabilities.has(Capabilities.Feature.STRING_TABLE) ? stringTable : null);
+		} else {
+			sendMessageImmediately(channel, message);
+		}
+	}
+
+	@Override
+	public void sendMessageImmediately(Channel channel, Message message) {
+		// Bukkit only accepts byte arrays
+		sendPluginMessage(channel, message.pack());
+	}
+
+	@Override
+	public void flushMessages() {
+		outboundQueue.flush(this::sendPluginMessage);
 	}
 
 	@Override
@@ -70,8 +112,27 @@ public VisualEffects getVfx() {
 	}
 
 	@Override
-	public KeyBindingManager getKeyBindingManager() {
-		if (keyBindingManager == null) keyBindingManager = new KeyBindingManager(this);
+	public @NotNull Capabilities getCapabilities() {
+		return capabilities;
+	}
+
+	@Override
+	public void setCapabilities(@NotNull Capabilities capabilities) {
+		this.capabilities = capabilities;
+	}
+
+	@Override
+	public synchronized KeyBindingManager getKeyBindingManager() {
+		// a released client keeps its key states privately, a slot of the store would never be freed again
+		if (keyBindingManager == null) keyBindingManager = new KeyBindingManager(this, released ? null : plugin.getKeyStateStore());
 		return keyBindingManager;
 	}
+
+	/**
+	 * Frees the resources which are shared with other clients once the player quits.
+	 */
+	public synchronized void release() {
+		released = true;
+		if (keyBindingManager != null) keyBindingManager.release();
+	}
 }
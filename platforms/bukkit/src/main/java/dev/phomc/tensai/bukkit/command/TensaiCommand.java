@@ -0,0 +1,123 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.bukkit.command;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+
+import dev.phomc.tensai.networking.Compression;
+import dev.phomc.tensai.networking.RejectedMessages;
+import dev.phomc.tensai.scheduler.Scheduler;
+import dev.phomc.tensai.server.TensaiServer;
+
+public class TensaiCommand implements TabExecutor {
+	public static final String COMMAND = "tensai";
+	public static final String COMMAND_SCHEDULER = "scheduler";
+	public static final String COMMAND_COMPRESSION = "compression";
+	public static final String COMMAND_REJECTED = "rejected";
+	public static final int MAX_TASK_LINES = 10;
+
+	private final TensaiServer server;
+
+	public TensaiCommand(TensaiServer server) {
+		this.server = server;
+	}
+
+	@Override
+	public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
+		if (args.length == 0) return false;
+		if (args[0].equalsIgnoreCase(COMMAND_COMPRESSION)) return onCompressionCommand(sender, args);
+
+		if (args[0].equalsIgnoreCase(COMMAND_REJECTED)) {
+			for (String line : RejectedMessages.format()) {
+				sender.sendMessage(line);
+			}
+
+			return true;
+		}
+
+		if (!args[0].equalsIgnoreCase(COMMAND_SCHEDULER)) return false;
+		Scheduler scheduler = server.getTaskScheduler();
+
+		if (args.length == 1) {
+			for (String line : scheduler.snapshot().format(MAX_TASK_LINES)) {
+				sender.sendMessage(line);
+			}
+
+			return true;
+		}
+
+		if (args.length != 3 || !args[1].equalsIgnoreCase("metrics")) return false;
+		boolean enabled = Boolean.parseBoolean(args[2]);
+		scheduler.setMetricsEnabled(enabled);
+		sender.sendMessage("Scheduler metrics " + (enabled ? "enabled" : "disabled"));
+		return true;
+	}
+
+	private boolean onCompressionCommand(CommandSender sender, String[] args) {
+		if (args.length == 1) {
+			for (String line : Compression.format()) {
+				sender.sendMessage(line);
+			}
+
+			return true;
+		}
+
+		if (args.length != 3 || !args[1].equalsIgnoreCase("threshold")) return false;
+		int threshold;
+
+		try {
+			threshold = Integer.parseInt(args[2]);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+
+		Compression.setThreshold(threshold);
+		sender.sendMessage("Compression threshold set to " + threshold);
+		return true;
+	}
+
+	@Override
+	public List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
+		switch (args.length) {
+			case 1:
+				return List.of(COMMAND_SCHEDULER, COMMAND_COMPRESSION, COMMAND_REJECTED);
+			case 2:
+				if (args[0].equalsIgnoreCase(COMMAND_REJECTED)) return Collections.emptyList();
+				return Collections.singletonList(args[0].equalsIgnoreCase(COMMAND_COMPRESSION) ? "threshold" : "metrics");
+			case 3:
+				if (args[0].equalsIgnoreCase(COMMAND_REJECTED)) return Collections.emptyList();
+				return args[0].equalsIgnoreCase(COMMAND_COMPRESSION) ? List.of(String.valueOf(Compression.DEFAULT_THRESHOLD)) : List.of("true", "false");
+			default:
+				return Collections.emptyList();
+		}
+	}
+}
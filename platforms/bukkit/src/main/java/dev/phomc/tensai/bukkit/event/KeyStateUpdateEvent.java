@@ -53,9 +53,10 @@ public KeyStateUpdateEvent(Player player, Map<Key, KeyState> keyStates) {
 	}
 
 	/**
-	 * Returns the current key states.
+	 * Returns the states of the updated keys.
 	 *
-	 * @return a modifiable, shared map
+	 * @return an unmodifiable view which must not be kept after the event, see
+	 * {@link dev.phomc.tensai.keybinding.KeyStateChanges}
 	 */
 	public Map<Key, KeyState> getKeyStates() {
 		return this.keyStates;
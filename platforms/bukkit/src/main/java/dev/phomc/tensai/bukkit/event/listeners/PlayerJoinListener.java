@@ -31,7 +31,10 @@
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
 
+import dev.phomc.tensai.bukkit.TensaiBukkit;
+import dev.phomc.tensai.networking.Capabilities;
 import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.message.s2c.HandshakeRequest;
 
 public class PlayerJoinListener implements Listener {
 	@EventHandler
@@ -42,12 +45,15 @@ public void onPlayerJoin(PlayerJoinEvent event) {
 			Method method = player.getClass().getDeclaredMethod("addChannel", String.class);
 			method.setAccessible(true);
 
-			for (Channel channel : Channel.values()) {
+			for (String channel : TensaiBukkit.getPluginChannels()) {
 				// add incoming channel without the need of registration from client
-				method.invoke(player, channel.getNamespace());
+				method.invoke(player, channel);
 			}
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
+
+		// clients without tensai simply ignore this and stay at the legacy capabilities
+		TensaiBukkit.getClient(player).sendMessageImmediately(Channel.HANDSHAKE, new HandshakeRequest(Capabilities.LOCAL));
 	}
 }
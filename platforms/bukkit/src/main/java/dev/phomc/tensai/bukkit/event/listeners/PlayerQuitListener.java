@@ -25,13 +25,15 @@
 package dev.phomc.tensai.bukkit.event.listeners;
 
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerQuitEvent;
 
 import dev.phomc.tensai.bukkit.TensaiBukkit;
 
 public class PlayerQuitListener implements Listener {
-	@EventHandler
+	// after other plugins, which may still use the client while handling the quit
+	@EventHandler(priority = EventPriority.MONITOR)
 	public void onPlayerQuit(PlayerQuitEvent event) {
 		TensaiBukkit.internalReset(event.getPlayer());
 	}
@@ -26,7 +26,6 @@
 
 import java.util.Collections;
 import java.util.Map;
-import java.util.Objects;
 
 import org.bukkit.Bukkit;
 
@@ -35,12 +34,11 @@
 import dev.phomc.tensai.bukkit.event.KeyStateUpdateEvent;
 import dev.phomc.tensai.bukkit.networking.ServerSubscriber;
 import dev.phomc.tensai.keybinding.Key;
-import dev.phomc.tensai.keybinding.KeyBindingManager;
 import dev.phomc.tensai.keybinding.KeyState;
 import dev.phomc.tensai.networking.Channel;
-import dev.phomc.tensai.networking.message.MessageType;
 import dev.phomc.tensai.networking.message.c2s.KeyBindingRegisterResponse;
-import dev.phomc.tensai.networking.message.c2s.KeyBindingStateUpdate;
+import dev.phomc.tensai.networking.message.c2s.KeyBindingStateView;
+import dev.phomc.tensai.server.client.ClientHandle;
 
 public class KeyBindingMessageSubscriber extends ServerSubscriber {
 	public KeyBindingMessageSubscriber(Channel channel) {
@@ -49,34 +47,16 @@ public KeyBindingMessageSubscriber(Channel channel) {
 
 	@Override
 	public void onInitialize() {
-		subscribe(MessageType.KEYBINDING_REGISTER_RESPONSE, (data, sender) -> {
-			KeyBindingRegisterResponse msg = new KeyBindingRegisterResponse();
-			msg.unpack(data);
+		subscribe(KeyBindingRegisterResponse.TYPE, (msg, sender) -> {
 			Bukkit.getPluginManager().callEvent(new KeyRegisterResultEvent(((ClientHandleImpl) sender).getPlayer(), Collections.unmodifiableMap(msg.getStatus())));
 		});
 
-		subscribe(MessageType.KEYBINDING_STATE_UPDATE, (data, sender) -> {
-			KeyBindingStateUpdate msg = new KeyBindingStateUpdate();
-			msg.unpack(data);
-
-			KeyBindingManager kbm = sender.getKeyBindingManager();
-
-			for (Key k : kbm.getRegisteredKeys()) {
-				Objects.requireNonNull(kbm.getKeyState(k)).sweep();
-			}
-
-			for (Map.Entry<Key, KeyState> ent : msg.getStates().entrySet()) {
-				KeyState ref = kbm.getKeyState(ent.getKey());
-
-				if (ref == null) {
-					kbm.setKeyState(ent.getKey(), ent.getValue());
-				} else {
-					ref.copyFrom(ent.getValue());
-					ent.setValue(ref); // point reference to original objects
-				}
-			}
+		subscribe(KeyBindingStateView.TYPE, this::onStateUpdate);
+		subscribe(KeyBindingStateView.COMPACT_TYPE, this::onStateUpdate);
+	}
 
-			Bukkit.getPluginManager().callEvent(new KeyStateUpdateEvent(((ClientHandleImpl) sender).getPlayer(), msg.getStates()));
-		});
+	private void onStateUpdate(KeyBindingStateView msg, ClientHandle sender) {
+		Map<Key, KeyState> states = sender.getKeyBindingManager().applyStateUpdate(msg);
+		Bukkit.getPluginManager().callEvent(new KeyStateUpdateEvent(((ClientHandleImpl) sender).getPlayer(), states));
 	}
 }
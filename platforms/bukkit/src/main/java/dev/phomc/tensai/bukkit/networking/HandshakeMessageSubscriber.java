@@ -0,0 +1,49 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.bukkit.networking;
+
+import dev.phomc.tensai.bukkit.TensaiBukkit;
+import dev.phomc.tensai.bukkit.client.ClientHandleImpl;
+import dev.phomc.tensai.networking.Capabilities;
+import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.message.c2s.HandshakeResponse;
+import dev.phomc.tensai.server.client.ClientHandle;
+
+public class HandshakeMessageSubscriber extends ServerSubscriber {
+	public HandshakeMessageSubscriber(Channel channel) {
+		super(channel);
+	}
+
+	@Override
+	public void onInitialize() {
+		subscribe(HandshakeResponse.TYPE, this::onResponse);
+	}
+
+	private void onResponse(HandshakeResponse msg, ClientHandle sender) {
+		Capabilities capabilities = Capabilities.LOCAL.negotiate(msg.getCapabilities());
+		sender.setCapabilities(capabilities);
+		TensaiBukkit.LOGGER.debug("Negotiated {} with {}", capabilities, ((ClientHandleImpl) sender).getPlayer().getName());
+	}
+}
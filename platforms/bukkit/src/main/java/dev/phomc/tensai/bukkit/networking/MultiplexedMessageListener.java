@@ -0,0 +1,69 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.bukkit.networking;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import org.jetbrains.annotations.NotNull;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+
+import dev.phomc.tensai.bukkit.TensaiBukkit;
+import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.RejectedMessages;
+import dev.phomc.tensai.util.VarInts;
+
+/**
+ * Listens to {@link Channel#MULTIPLEXED_NAMESPACE} and dispatches messages to the subscriber of their channel.
+ */
+public class MultiplexedMessageListener implements PluginMessageListener {
+	@Override
+	public void onPluginMessageReceived(String channel, @NotNull Player player, byte[] message) {
+		if (!channel.equals(Channel.MULTIPLEXED_NAMESPACE)) return;
+		int id;
+
+		try {
+			id = VarInts.read(new DataInputStream(new ByteArrayInputStream(message)));
+		} catch (IOException e) {
+			RejectedMessages.count(RejectedMessages.Reason.MALFORMED);
+			TensaiBukkit.LOGGER.debug("Malformed multiplexed message", e);
+			return;
+		}
+
+		Channel target = Channel.byId(id);
+		ServerSubscriber subscriber = target == null ? null : ServerSubscriber.getSubscriber(target);
+
+		if (subscriber == null) {
+			RejectedMessages.count(RejectedMessages.Reason.UNKNOWN);
+			TensaiBukkit.LOGGER.debug("Received message at unknown channel id {}", id);
+			return;
+		}
+
+		subscriber.receive(message, VarInts.size(id), player);
+	}
+}
@@ -24,19 +24,42 @@
 
 package dev.phomc.tensai.bukkit.networking;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.messaging.PluginMessageListener;
 
 import dev.phomc.tensai.bukkit.TensaiBukkit;
 import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.Compression;
+import dev.phomc.tensai.networking.RejectedMessages;
 import dev.phomc.tensai.networking.Subscriber;
 import dev.phomc.tensai.server.client.ClientHandle;
 
 public abstract class ServerSubscriber extends Subscriber<ClientHandle> implements PluginMessageListener {
+	private static final Map<Channel, ServerSubscriber> SUBSCRIBERS = new ConcurrentHashMap<>();
+
 	public ServerSubscriber(Channel channel) {
 		super(channel);
+		SUBSCRIBERS.put(channel, this);
+	}
+
+	/**
+	 * Gets the subscriber of the given channel.
+	 *
+	 * @param channel channel
+	 * @return the subscriber, or {@code null} if there is none
+	 */
+	@Nullable
+	public static ServerSubscriber getSubscriber(@NotNull Channel channel) {
+		return SUBSCRIBERS.get(channel);
 	}
 
 	public abstract void onInitialize();
@@ -44,11 +67,42 @@ public ServerSubscriber(Channel channel) {
 	@Override
 	public void onPluginMessageReceived(String channel, @NotNull Player player, byte[] message) {
 		if (!channel.equals(getChannel().getNamespace())) return;
-		TensaiBukkit.LOGGER.debug("Received message id {} at channel {}", message[0], channel);
-		Callback<ClientHandle> callback = subscription.get(message[0]);
+		receive(message, 0, player);
+	}
+
+	/**
+	 * Handles a message of this subscriber's channel.
+	 *
+	 * @param message packet data
+	 * @param offset  the index of the message id
+	 * @param player  sender
+	 */
+	public void receive(byte[] message, int offset, @NotNull Player player) {
+		if (offset >= message.length) {
+			RejectedMessages.count(RejectedMessages.Reason.MALFORMED);
+			return;
+		}
+
+		byte id = message[offset];
+
+		if (!accept(id, message.length - offset)) {
+			TensaiBukkit.LOGGER.debug("Rejected message id {} of {} bytes at channel {}", id, message.length - offset, getChannel());
+			return;
+		}
+
+		try {
+			if (Compression.isCompressed(id)) {
+				message = Compression.decompress(message, offset, message.length - offset, getMaxSize(id));
+				offset = 0;
+				id = message[0];
+			}
 
-		if (callback != null) {
-			callback.call(message, TensaiBukkit.getClient(player));
+			TensaiBukkit.LOGGER.debug("Received message id {} at channel {}", id, getChannel());
+			dispatch(id, new DataInputStream(new ByteArrayInputStream(message, offset, message.length - offset)), TensaiBukkit.getClient(player));
+		} catch (IOException e) {
+			// not logged as a warning, which would let a client flood the log
+			RejectedMessages.count(RejectedMessages.Reason.MALFORMED);
+			TensaiBukkit.LOGGER.debug("Malformed message id {} at channel {}", id, getChannel(), e);
 		}
 	}
 }
@@ -24,13 +24,27 @@
 
 package dev.phomc.tensai.bukkit.scheduler;
 
+import org.jetbrains.annotations.NotNull;
+
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.Plugin;
 
+import dev.phomc.tensai.bukkit.TensaiBukkit;
 import dev.phomc.tensai.scheduler.Scheduler;
 
 public class ServerScheduler extends Scheduler {
 	public ServerScheduler(Plugin plugin) {
+		super(Backend.TIMING_WHEEL);
 		Bukkit.getScheduler().runTaskTimer(plugin, this::onTick, 0, 1);
 	}
+
+	@Override
+	protected boolean isPrimaryThread() {
+		return Bukkit.isPrimaryThread();
+	}
+
+	@Override
+	protected void handleException(@NotNull String message, @NotNull Throwable throwable) {
+		TensaiBukkit.LOGGER.error(message, throwable);
+	}
 }
@@ -39,6 +39,6 @@ public ClientVisualEffectsImpl(ClientHandleImpl handle) {
 
 	@Override
 	public void playAnimationOnce(String type, double startSec, double durationSec, AnimationProperty<?>... properties) {
-		handle.sendPluginMessage(Channel.VFX, new AnimationPlayMessage(type, AnimationPlayMessage.PLAY_ONCE, startSec, durationSec, properties).pack());
+		handle.sendMessage(Channel.VFX, new AnimationPlayMessage(type, AnimationPlayMessage.PLAY_ONCE, startSec, durationSec, properties));
 	}
 }
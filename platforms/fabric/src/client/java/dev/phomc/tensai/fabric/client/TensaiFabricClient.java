@@ -26,6 +26,8 @@
 
 import java.io.File;
 
+import org.jetbrains.annotations.NotNull;
+
 import net.minecraft.client.MinecraftClient;
 
 import net.fabricmc.api.ClientModInitializer;
@@ -34,10 +36,15 @@
 import dev.phomc.tensai.fabric.client.event.listeners.ClientDisconnectListener;
 import dev.phomc.tensai.fabric.client.iam.ClientAuthorizer;
 import dev.phomc.tensai.fabric.client.keybinding.KeyBindingMessageSubscriber;
+import dev.phomc.tensai.fabric.client.networking.BundleMessageSubscriber;
+import dev.phomc.tensai.fabric.client.networking.ClientSubscriber;
+import dev.phomc.tensai.fabric.client.networking.HandshakeMessageSubscriber;
 import dev.phomc.tensai.fabric.client.scheduler.tasks.KeyStateCheckTask;
 import dev.phomc.tensai.fabric.client.scheduler.tasks.PermissionLoadTask;
 import dev.phomc.tensai.fabric.client.scheduler.tasks.PermissionSaveTask;
+import dev.phomc.tensai.networking.Capabilities;
 import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.StringTable;
 import dev.phomc.tensai.scheduler.Scheduler;
 import dev.phomc.tensai.server.TensaiServer;
 
@@ -50,6 +57,8 @@ public static TensaiFabricClient getInstance() {
 
 	private File tensaiDir;
 	private ClientAuthorizer clientAuthorizer;
+	private volatile Capabilities capabilities = Capabilities.LEGACY;
+	private final StringTable stringTable = new StringTable();
 
 	public File getTensaiDirectory() {
 		return tensaiDir;
@@ -59,6 +68,31 @@ public ClientAuthorizer getClientAuthorizer() {
 		return clientAuthorizer;
 	}
 
+	/**
+	 * Gets the capabilities which are agreed with the current server.<br>
+	 * It is {@link Capabilities#LEGACY} until the server sends a handshake.
+	 *
+	 * @return agreed capabilities
+	 */
+	@NotNull
+	public Capabilities getCapabilities() {
+		return capabilities;
+	}
+
+	public void setCapabilities(@NotNull Capabilities capabilities) {
+		this.capabilities = capabilities;
+	}
+
+	/**
+	 * Gets the string table of the current connection.
+	 *
+	 * @return string table
+	 */
+	@NotNull
+	public StringTable getStringTable() {
+		return stringTable;
+	}
+
 	@Override
 	public void onInitializeClient() {
 		INSTANCE = this;
@@ -66,7 +100,10 @@ public void onInitializeClient() {
 		tensaiDir.mkdir();
 		clientAuthorizer = new ClientAuthorizer();
 
+		ClientSubscriber.registerMultiplexedReceiver();
 		new KeyBindingMessageSubscriber(Channel.KEYBINDING).onInitialize();
+		new HandshakeMessageSubscriber(Channel.HANDSHAKE).onInitialize();
+		new BundleMessageSubscriber(Channel.BUNDLE).onInitialize();
 
 		ClientPlayConnectionEvents.DISCONNECT.register(new ClientDisconnectListener());
 
@@ -29,11 +29,15 @@
 
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 
+import dev.phomc.tensai.fabric.client.TensaiFabricClient;
 import dev.phomc.tensai.fabric.client.keybinding.KeyBindingManager;
+import dev.phomc.tensai.networking.Capabilities;
 
 public class ClientDisconnectListener implements ClientPlayConnectionEvents.Disconnect {
 	@Override
 	public void onPlayDisconnect(ClientPlayNetworkHandler handler, MinecraftClient client) {
 		KeyBindingManager.getInstance().reset();
+		TensaiFabricClient.getInstance().setCapabilities(Capabilities.LEGACY);
+		TensaiFabricClient.getInstance().getStringTable().reset();
 	}
 }
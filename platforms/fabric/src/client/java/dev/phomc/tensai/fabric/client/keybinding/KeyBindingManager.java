@@ -26,12 +26,14 @@
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.util.InputUtil;
@@ -41,6 +43,7 @@
 import net.fabricmc.fabric.impl.client.keybinding.KeyBindingRegistryImpl;
 
 import dev.phomc.tensai.fabric.client.GameOptionProcessor;
+import dev.phomc.tensai.fabric.client.TrackedKeyBinding;
 import dev.phomc.tensai.fabric.client.i18n.CustomTranslationStorage;
 import dev.phomc.tensai.fabric.client.mixins.KeyBindingMixin;
 import dev.phomc.tensai.fabric.client.scheduler.tasks.KeyStateCheckTask;
@@ -51,19 +54,42 @@
 import dev.phomc.tensai.scheduler.Task;
 import dev.phomc.tensai.server.TensaiServer;
 
+/**
+ * Manages the key bindings registered by the server.<br>
+ * Key transitions are captured from the input callbacks of Minecraft key bindings (see {@link #markChanged(Key)}),
+ * which queue the changed keys until the next tick. The state of a key is only read when it is queued, so idle clients
+ * do no work. All methods are called on the client thread.
+ */
 public class KeyBindingManager {
 	public static final Identifier KEYBINDING_NAMESPACE = new Identifier(Channel.KEYBINDING.getNamespace());
 	private static final KeyBindingManager INSTANCE = new KeyBindingManager();
+	private static final Key[] KEYS = Key.values();
+	// indexed by key ordinal, which avoids creating input keys on every lookup
+	private static final InputUtil.Key[] INPUT_KEYS = new InputUtil.Key[KEYS.length];
+
+	static {
+		for (Key key : KEYS) {
+			InputUtil.Type type = key.isMouse() ? InputUtil.Type.MOUSE : InputUtil.Type.KEYSYM;
+			INPUT_KEYS[key.ordinal()] = type.createFromCode(key.getGLFWCode());
+		}
+	}
+
 	private List<net.minecraft.client.option.KeyBinding> registeredKeys = new ArrayList<>();
-	private Map<Key, Integer> stateTable = new HashMap<>();
 	private Task keyStateCheckTask;
 
+	// all indexed by key ordinal; a state is the number of presses plus 0x10000 if the key is pressed
+	private final net.minecraft.client.option.KeyBinding[] bindings = new net.minecraft.client.option.KeyBinding[KEYS.length];
+	private final int[] sentStates = new int[KEYS.length];
+	private final int[] changed = new int[KEYS.length];
+	private final boolean[] queued = new boolean[KEYS.length];
+	private int changedCount;
+
 	public static KeyBindingManager getInstance() {
 		return INSTANCE;
 	}
 
 	public static InputUtil.Key getInputKey(@NotNull Key key) {
-		return key.isMouse() ? InputUtil.Type.MOUSE.createFromCode(key.getGLFWCode()) : InputUtil.Type.KEYSYM.createFromCode(key.getGLFWCode());
+		return INPUT_KEYS[key.ordinal()];
 	}
 
 	public static Key lookupKey(@NotNull InputUtil.Key key) {
@@ -93,6 +119,8 @@ public void initialize(@NotNull List<KeyBinding> keymap) {
 			CustomTranslationStorage.getInstance().put(v.getTranslationKey(), keyBinding.getName());
 			KeyBindingHelper.registerKeyBinding(v);
 			registeredKeys.add(v);
+			bindings[keyBinding.getKey().ordinal()] = v;
+			((TrackedKeyBinding) v).setTrackedKey(keyBinding.getKey());
 		}
 
 		((GameOptionProcessor) MinecraftClient.getInstance().options).reprocessKeys();
@@ -100,6 +128,7 @@ public void initialize(@NotNull List<KeyBinding> keymap) {
 
 	public void reset() {
 		for (net.minecraft.client.option.KeyBinding keyBinding : registeredKeys) {
+			((TrackedKeyBinding) keyBinding).setTrackedKey(null);
 			CustomTranslationStorage.getInstance().remove(keyBinding.getTranslationKey());
 			KeyBindingMixin.getId2KeyMapping().remove(keyBinding.getTranslationKey());
 			KeyBindingMixin.getKeyCodeMapping().remove(keyBinding.getDefaultKey());
@@ -116,8 +145,11 @@ public void reset() {
 
 		((GameOptionProcessor) MinecraftClient.getInstance().options).resetKeys(registeredKeys);
 
-		stateTable = new HashMap<>();
 		registeredKeys = new ArrayList<>();
+		Arrays.fill(bindings, null);
+		Arrays.fill(sentStates, 0);
+		Arrays.fill(queued, false);
+		changedCount = 0;
 
 		if (keyStateCheckTask != null) {
 			keyStateCheckTask.cancel();
@@ -125,25 +157,57 @@ public void reset() {
 		}
 	}
 
+	/**
+	 * Queues a key whose binding was pressed or released, so its state is read by the next
+	 * {@link #fetchUpdatedStates()}. This is called by the input callbacks of key bindings.
+	 *
+	 * @param key the key, or {@code null} if the binding is not registered by the server
+	 */
+	public void markChanged(@Nullable Key key) {
+		if (key == null) return;
+		int ordinal = key.ordinal();
+		if (queued[ordinal] || bindings[ordinal] == null) return;
+		queued[ordinal] = true;
+		changed[changedCount++] = ordinal;
+	}
+
+	public boolean hasChanges() {
+		return changedCount > 0;
+	}
+
+	/**
+	 * Reads the states of the queued keys and returns the ones which differ from the states sent before.<br>
+	 * A key which was pressed during this tick stays queued for the next one, since its number of presses goes back
+	 * to {@code 0} then.
+	 *
+	 * @return updated states, which is empty if nothing changed
+	 */
 	public Map<Key, KeyState> fetchUpdatedStates() {
+		if (changedCount == 0) return Collections.emptyMap();
 		Map<Key, KeyState> states = new EnumMap<>(Key.class);
+		int count = changedCount;
+		changedCount = 0;
 
-		for (net.minecraft.client.option.KeyBinding key : registeredKeys) {
-			Key k = lookupKey(key.getDefaultKey());
+		for (int i = 0; i < count; i++) {
+			int ordinal = changed[i];
+			queued[ordinal] = false;
+			net.minecraft.client.option.KeyBinding key = bindings[ordinal];
 
 			short n = 0;
 			while (key.wasPressed()) n++;
 
 			int hash = n + (key.isPressed() ? 0x10000 : 0);
-			Integer old = stateTable.put(k, hash);
-			if (old == null) old = 0;
-			int diff = hash ^ old;
+			int diff = hash ^ sentStates[ordinal];
+			sentStates[ordinal] = hash;
 
 			if (diff > 0) {
 				int dirty = (diff & 0xFFFF) > 0 ? KeyState.DIRTY_TIME_PRESSED : 0;
 				dirty |= (diff & 0x10000) > 0 ? KeyState.DIRTY_PRESSED : 0;
-				states.put(k, new KeyState(n, key.isPressed(), (byte) dirty));
+				states.put(KEYS[ordinal], new KeyState(n, key.isPressed(), (byte) dirty));
 			}
+
+			// this only overwrites entries which were already read
+			if (n > 0) markChanged(KEYS[ordinal]);
 		}
 
 		return states;
@@ -45,7 +45,6 @@
 import dev.phomc.tensai.keybinding.Key;
 import dev.phomc.tensai.keybinding.KeyBinding;
 import dev.phomc.tensai.networking.Channel;
-import dev.phomc.tensai.networking.message.MessageType;
 import dev.phomc.tensai.networking.message.c2s.KeyBindingRegisterResponse;
 import dev.phomc.tensai.networking.message.s2c.KeyBindingRegisterMessage;
 import dev.phomc.tensai.server.TensaiServer;
@@ -57,11 +56,8 @@ public KeyBindingMessageSubscriber(Channel channel) {
 
 	@Override
 	public void onInitialize() {
-		subscribe(MessageType.KEYBINDING_REGISTER, (data, sender) -> {
+		subscribe(KeyBindingRegisterMessage.TYPE, (msg, sender) -> {
 			TensaiFabric.LOGGER.info("Registering keybinding...");
-			KeyBindingRegisterMessage msg = new KeyBindingRegisterMessage();
-			msg.unpack(data);
-
 			((TensaiServer) MinecraftClient.getInstance()).getTaskScheduler().runSync(() -> prompt(msg, sender));
 		});
 	}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.fabric.client.mixins;
+
+import java.util.Map;
+
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import net.minecraft.client.option.KeyBinding;
+import net.minecraft.client.util.InputUtil;
+
+import dev.phomc.tensai.fabric.client.TrackedKeyBinding;
+import dev.phomc.tensai.fabric.client.keybinding.KeyBindingManager;
+import dev.phomc.tensai.keybinding.Key;
+
+@Mixin(KeyBinding.class)
+public abstract class KeyBindingInputMixin implements TrackedKeyBinding {
+	@Shadow
+	@Final
+	private static Map<InputUtil.Key, KeyBinding> KEY_TO_BINDINGS;
+
+	@Unique
+	private Key trackedKey;
+
+	@Inject(method = "onKeyPressed(Lnet/minecraft/client/util/InputUtil$Key;)V", at = @At("HEAD"))
+	private static void onKeyPressed(InputUtil.Key key, CallbackInfo ci) {
+		KeyBinding keyBinding = KEY_TO_BINDINGS.get(key);
+
+		if (keyBinding != null) {
+			KeyBindingManager.getInstance().markChanged(((TrackedKeyBinding) keyBinding).getTrackedKey());
+		}
+	}
+
+	// also called when all keys are released, e.g: when a screen opens
+	@Inject(method = "setPressed(Z)V", at = @At("HEAD"))
+	private void onSetPressed(boolean pressed, CallbackInfo ci) {
+		KeyBindingManager.getInstance().markChanged(trackedKey);
+	}
+
+	@Override
+	public Key getTrackedKey() {
+		return trackedKey;
+	}
+
+	@Override
+	public void setTrackedKey(Key key) {
+		this.trackedKey = key;
+	}
+}
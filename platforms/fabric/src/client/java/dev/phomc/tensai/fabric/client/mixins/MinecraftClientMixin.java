@@ -31,6 +31,7 @@
 import net.minecraft.client.MinecraftClient;
 
 import dev.phomc.tensai.fabric.client.scheduler.ClientScheduler;
+import dev.phomc.tensai.keybinding.KeyStateStore;
 import dev.phomc.tensai.scheduler.Scheduler;
 import dev.phomc.tensai.server.TensaiServer;
 import dev.phomc.tensai.server.vfx.VisualEffects;
@@ -50,10 +51,15 @@ public VisualEffects getGlobalVfx() {
 
 	@Override
 	public Scheduler getTaskScheduler() {
-		if (clientScheduler == null) clientScheduler = new ClientScheduler();
+		if (clientScheduler == null) clientScheduler = new ClientScheduler(this);
 		return clientScheduler;
 	}
 
+	@Override
+	public KeyStateStore getKeyStateStore() {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public boolean isPrimaryThread() {
 		return Thread.currentThread().equals(thread);
@@ -24,27 +24,49 @@
 
 package dev.phomc.tensai.fabric.client.networking;
 
-import io.netty.buffer.Unpooled;
-
-import net.minecraft.network.PacketByteBuf;
 import net.minecraft.util.Identifier;
 
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
 import net.fabricmc.fabric.api.networking.v1.PacketSender;
 
+import dev.phomc.tensai.fabric.TensaiFabric;
+import dev.phomc.tensai.fabric.client.TensaiFabricClient;
+import dev.phomc.tensai.fabric.networking.MessageCodec;
+import dev.phomc.tensai.networking.Capabilities;
 import dev.phomc.tensai.networking.Channel;
 import dev.phomc.tensai.networking.message.Message;
 
 public class ClientPublisher {
 	public static void publish(Identifier identifier, Message message, PacketSender consumer) {
-		consumer.sendPacket(identifier, new PacketByteBuf(Unpooled.wrappedBuffer(message.pack())));
+		consumer.sendPacket(identifier, MessageCodec.encode(message));
 	}
 
 	public static void publish(Identifier identifier, Message message) {
 		publish(identifier, message, ClientPlayNetworking.getSender());
 	}
 
+	/**
+	 * Publishes a message of the given channel, over the multiplexed channel if the server supports it.
+	 *
+	 * @param channel  channel
+	 * @param message  message
+	 * @param consumer packet sender
+	 */
+	public static void publish(Channel channel, Message message, PacketSender consumer) {
+		Capabilities capabilities = TensaiFabricClient.getInstance().getCapabilities();
+
+		if (!channel.isReachable(capabilities)) {
+			TensaiFabric.LOGGER.debug("Dropped message at channel {} since the server does not support multiplexing", channel);
+			return;
+		}
+
+		boolean multiplexed = channel.isMultiplexed(capabilities);
+		consumer.sendPacket(MessageCodec.identifier(channel, multiplexed), capabilities.has(Capabilities.Feature.COMPRESSION)
+				? MessageCodec.encodeCompressed(channel, message, multiplexed)
+				: MessageCodec.encode(channel, message, multiplexed));
+	}
+
 	public static void publish(Channel channel, Message message) {
-		publish(new Identifier(channel.getNamespace()), message);
+		publish(channel, message, ClientPlayNetworking.getSender());
 	}
 }
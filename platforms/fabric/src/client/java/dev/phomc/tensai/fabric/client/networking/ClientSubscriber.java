@@ -24,7 +24,15 @@
 
 package dev.phomc.tensai.fabric.client.networking;
 
-import io.netty.buffer.ByteBufUtil;
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import org.jetbrains.annotations.Nullable;
 
 import net.minecraft.util.Identifier;
 
@@ -34,29 +42,146 @@
 import net.fabricmc.fabric.api.networking.v1.PacketSender;
 
 import dev.phomc.tensai.fabric.TensaiFabric;
+import dev.phomc.tensai.fabric.client.TensaiFabricClient;
+import dev.phomc.tensai.fabric.networking.MessageCodec;
 import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.Compression;
+import dev.phomc.tensai.networking.RejectedMessages;
+import dev.phomc.tensai.networking.StringTable;
 import dev.phomc.tensai.networking.Subscriber;
 import dev.phomc.tensai.networking.message.Message;
 
 @Environment(EnvType.CLIENT)
 public abstract class ClientSubscriber extends Subscriber<PacketSender> {
+	private static final Map<Channel, ClientSubscriber> SUBSCRIBERS = new ConcurrentHashMap<>();
 	private final Identifier identifier;
 
 	public ClientSubscriber(Channel channel) {
 		super(channel);
 		identifier = new Identifier(channel.getNamespace());
+		SUBSCRIBERS.put(channel, this);
+
+		// other channels are only received through the multiplexed channel
+		if (channel.isBuiltin()) {
+			ClientPlayNetworking.registerGlobalReceiver(identifier, (client, handler, buf, responseSender) -> {
+				receive(buf, responseSender);
+			});
+		}
+	}
+
+	/**
+	 * Registers the receiver of {@link Channel#MULTIPLEXED_NAMESPACE}, which dispatches messages to the subscriber of
+	 * their channel.
+	 */
+	public static void registerMultiplexedReceiver() {
+		ClientPlayNetworking.registerGlobalReceiver(MessageCodec.MULTIPLEXED_IDENTIFIER, (client, handler, buf, responseSender) -> {
+			int id;
+
+			try {
+				id = buf.readVarInt();
+			} catch (RuntimeException e) {
+				// PacketByteBuf reports a truncated or oversized VarInt with unchecked exceptions
+				RejectedMessages.count(RejectedMessages.Reason.MALFORMED);
+				TensaiFabric.LOGGER.debug("Malformed multiplexed message", e);
+				return;
+			}
 
-		ClientPlayNetworking.registerGlobalReceiver(identifier, (client, handler, buf, responseSender) -> {
-			byte[] bytes = ByteBufUtil.getBytes(buf);
-			TensaiFabric.LOGGER.debug("Received message id {} at channel {}", bytes[0], getChannel());
-			Callback<PacketSender> callback = subscription.get(bytes[0]);
+			Channel channel = Channel.byId(id);
 
-			if (callback != null) {
-				callback.call(bytes, responseSender);
+			if (channel == null) {
+				RejectedMessages.count(RejectedMessages.Reason.UNKNOWN);
+				TensaiFabric.LOGGER.debug("Received message at unknown channel id {}", id);
+				discard(buf);
+				return;
 			}
+
+			dispatch(channel, buf, responseSender);
 		});
 	}
 
+	/**
+	 * Dispatches a message to the subscriber of the given channel.<br>
+	 * This is used to deliver messages which are not received by their own packet, e.g: from a bundle.
+	 *
+	 * @param channel channel, or {@code null} if it is not registered
+	 * @param buf     message data, starting at the message id
+	 * @param sender  response sender
+	 */
+	public static void dispatch(@Nullable Channel channel, ByteBuf buf, PacketSender sender) {
+		ClientSubscriber subscriber = channel == null ? null : SUBSCRIBERS.get(channel);
+
+		if (subscriber != null) {
+			subscriber.receive(buf, sender);
+		} else {
+			RejectedMessages.count(RejectedMessages.Reason.UNKNOWN);
+			discard(buf);
+		}
+	}
+
+	private void receive(ByteBuf buf, PacketSender sender) {
+		if (!buf.isReadable()) {
+			RejectedMessages.count(RejectedMessages.Reason.MALFORMED);
+			return;
+		}
+
+		boolean tabled = (buf.getByte(buf.readerIndex()) & StringTable.FLAG) != 0;
+
+		try {
+			buf = readDefinitions(buf);
+		} catch (IOException e) {
+			RejectedMessages.count(RejectedMessages.Reason.MALFORMED);
+			TensaiFabric.LOGGER.warn("Malformed string definitions at channel {}", getChannel(), e);
+			return;
+		}
+
+		byte id = buf.getByte(buf.readerIndex());
+
+		if (!accept(id, buf.readableBytes())) {
+			TensaiFabric.LOGGER.debug("Rejected message id {} of {} bytes at channel {}", id, buf.readableBytes(), getChannel());
+			return;
+		}
+
+		try {
+			buf = MessageCodec.decompress(buf, getMaxSize(id));
+			id = buf.getByte(buf.readerIndex());
+			ByteBufInputStream stream = new ByteBufInputStream(buf);
+			DataInput input = tabled ? TensaiFabricClient.getInstance().getStringTable().wrap(stream) : stream;
+			TensaiFabric.LOGGER.debug("Received message id {} at channel {}", id, getChannel());
+			dispatch(id, input, sender);
+		} catch (IOException e) {
+			RejectedMessages.count(RejectedMessages.Reason.MALFORMED);
+			TensaiFabric.LOGGER.warn("Malformed message id {} at channel {}", id, getChannel(), e);
+		}
+	}
+
+	/**
+	 * Stores the string definitions of a message which is encoded with the string table.<br>
+	 * This runs before the message is validated, since the server considers the definitions received even if the
+	 * message is dropped. The received buffer is not modified.
+	 *
+	 * @param buf message data, starting at the message id
+	 * @return the decompressed message without definitions and {@link StringTable#FLAG}, or the given buffer if the
+	 * message is not encoded with the string table
+	 * @throws IOException if the message is malformed
+	 */
+	private static ByteBuf readDefinitions(ByteBuf buf) throws IOException {
+		if ((buf.getByte(buf.readerIndex()) & StringTable.FLAG) == 0) return buf;
+		ByteBuf frame = MessageCodec.decompress(buf, Compression.MAX_DECOMPRESSED_SIZE + 1).slice();
+		byte id = (byte) (frame.readByte() & ~StringTable.FLAG);
+		TensaiFabricClient.getInstance().getStringTable().readDefinitions(new ByteBufInputStream(frame));
+		return Unpooled.wrappedBuffer(Unpooled.wrappedBuffer(new byte[] {id}), frame);
+	}
+
+	private static void discard(ByteBuf buf) {
+		if (!buf.isReadable()) return;
+
+		try {
+			readDefinitions(buf);
+		} catch (IOException e) {
+			TensaiFabric.LOGGER.warn("Malformed string definitions of a dropped message", e);
+		}
+	}
+
 	public abstract void onInitialize();
 
 	public Identifier getIdentifier() {
@@ -64,10 +189,10 @@ public Identifier getIdentifier() {
 	}
 
 	public void publish(Message message, PacketSender consumer) {
-		ClientPublisher.publish(identifier, message, consumer);
+		ClientPublisher.publish(getChannel(), message, consumer);
 	}
 
 	public void publish(Message message) {
-		ClientPublisher.publish(identifier, message);
+		ClientPublisher.publish(getChannel(), message);
 	}
 }
@@ -0,0 +1,54 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.fabric.client.networking;
+
+import net.fabricmc.fabric.api.networking.v1.PacketSender;
+
+import dev.phomc.tensai.fabric.TensaiFabric;
+import dev.phomc.tensai.fabric.client.TensaiFabricClient;
+import dev.phomc.tensai.networking.Capabilities;
+import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.message.c2s.HandshakeResponse;
+import dev.phomc.tensai.networking.message.s2c.HandshakeRequest;
+
+public class HandshakeMessageSubscriber extends ClientSubscriber {
+	public HandshakeMessageSubscriber(Channel channel) {
+		super(channel);
+	}
+
+	@Override
+	public void onInitialize() {
+		subscribe(HandshakeRequest.TYPE, this::onRequest);
+	}
+
+	private void onRequest(HandshakeRequest msg, PacketSender sender) {
+		Capabilities capabilities = Capabilities.LOCAL.negotiate(msg.getCapabilities());
+		TensaiFabricClient.getInstance().setCapabilities(capabilities);
+		// the server starts with an empty table on every connection
+		TensaiFabricClient.getInstance().getStringTable().reset();
+		TensaiFabric.LOGGER.info("Negotiated {}", capabilities);
+		publish(new HandshakeResponse(Capabilities.LOCAL), sender);
+	}
+}
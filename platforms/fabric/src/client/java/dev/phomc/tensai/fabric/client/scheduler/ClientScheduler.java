@@ -24,15 +24,32 @@
 
 package dev.phomc.tensai.fabric.client.scheduler;
 
+import org.jetbrains.annotations.NotNull;
+
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 
+import dev.phomc.tensai.fabric.TensaiFabric;
 import dev.phomc.tensai.scheduler.Scheduler;
+import dev.phomc.tensai.server.TensaiServer;
 
 @Environment(EnvType.CLIENT)
 public class ClientScheduler extends Scheduler {
-	public ClientScheduler() {
+	private final TensaiServer client;
+
+	public ClientScheduler(TensaiServer client) {
+		this.client = client;
 		ClientTickEvents.END_CLIENT_TICK.register(server -> onTick());
 	}
+
+	@Override
+	protected boolean isPrimaryThread() {
+		return client.isPrimaryThread();
+	}
+
+	@Override
+	protected void handleException(@NotNull String message, @NotNull Throwable throwable) {
+		TensaiFabric.LOGGER.error(message, throwable);
+	}
 }
@@ -28,11 +28,14 @@
 
 import net.minecraft.client.MinecraftClient;
 
+import dev.phomc.tensai.fabric.client.TensaiFabricClient;
 import dev.phomc.tensai.fabric.client.keybinding.KeyBindingManager;
 import dev.phomc.tensai.fabric.client.networking.ClientPublisher;
 import dev.phomc.tensai.keybinding.Key;
 import dev.phomc.tensai.keybinding.KeyState;
+import dev.phomc.tensai.networking.Capabilities;
 import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.message.c2s.CompactKeyBindingStateUpdate;
 import dev.phomc.tensai.networking.message.c2s.KeyBindingStateUpdate;
 import dev.phomc.tensai.scheduler.Task;
 
@@ -47,10 +50,16 @@ public static Task build() {
 
 	@Override
 	public void run() {
+		// nothing to read until an input callback queues a key
+		if (!KeyBindingManager.getInstance().hasChanges()) return;
 		if (MinecraftClient.getInstance().getNetworkHandler() == null) return;
 		Map<Key, KeyState> states = KeyBindingManager.getInstance().fetchUpdatedStates();
 
-		if (!states.isEmpty()) {
+		if (states.isEmpty()) return;
+
+		if (TensaiFabricClient.getInstance().getCapabilities().has(Capabilities.Feature.COMPACT_KEY_STATE)) {
+			ClientPublisher.publish(Channel.KEYBINDING, new CompactKeyBindingStateUpdate(states));
+		} else {
 			ClientPublisher.publish(Channel.KEYBINDING, new KeyBindingStateUpdate(states));
 		}
 	}
@@ -28,6 +28,9 @@
 import org.slf4j.LoggerFactory;
 
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+
+import dev.phomc.tensai.fabric.command.TensaiCommand;
 
 public class TensaiFabric implements ModInitializer {
 	public static final String MOD_ID = "tensai";
@@ -35,5 +38,8 @@ public class TensaiFabric implements ModInitializer {
 
 	@Override
 	public void onInitialize() {
+		CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> {
+			dispatcher.register(TensaiCommand.tensai());
+		});
 	}
 }
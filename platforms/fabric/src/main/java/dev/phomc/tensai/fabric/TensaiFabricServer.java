@@ -24,20 +24,48 @@
 
 package dev.phomc.tensai.fabric;
 
+import net.minecraft.server.network.ServerPlayerEntity;
+
 import net.fabricmc.api.DedicatedServerModInitializer;
 import net.fabricmc.fabric.api.entity.event.v1.ServerPlayerEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 
 import dev.phomc.tensai.fabric.client.FabricClientHandle;
 import dev.phomc.tensai.fabric.keybinding.KeyBindingMessageSubscriber;
+import dev.phomc.tensai.fabric.networking.HandshakeMessageSubscriber;
+import dev.phomc.tensai.fabric.networking.ServerSubscriber;
+import dev.phomc.tensai.networking.Capabilities;
 import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.message.s2c.HandshakeRequest;
+import dev.phomc.tensai.server.TensaiServer;
 
 public class TensaiFabricServer implements DedicatedServerModInitializer {
 	@Override
 	public void onInitializeServer() {
+		ServerSubscriber.registerMultiplexedReceiver();
 		new KeyBindingMessageSubscriber(Channel.KEYBINDING).onInitialize();
+		new HandshakeMessageSubscriber(Channel.HANDSHAKE).onInitialize();
+
+		ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
+			// clients without tensai simply ignore this and stay at the legacy capabilities
+			((FabricClientHandle) handler.player).sendMessageImmediately(Channel.HANDSHAKE, new HandshakeRequest(Capabilities.LOCAL));
+		});
+
+		ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+			((FabricClientHandle) handler.player).releaseKeyBindingManager();
+		});
 
 		ServerPlayerEvents.COPY_FROM.register((oldPlayer, newPlayer, alive) -> {
 			((FabricClientHandle) oldPlayer).transferTo(newPlayer);
 		});
+
+		ServerTickEvents.END_SERVER_TICK.register(server -> {
+			for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+				((FabricClientHandle) player).flushMessages();
+			}
+
+			((TensaiServer) server).getPressedKeyIndex().tick();
+		});
 	}
 }
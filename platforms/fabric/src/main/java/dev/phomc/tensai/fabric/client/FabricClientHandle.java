@@ -27,10 +27,21 @@
 import net.minecraft.server.network.ServerPlayerEntity;
 
 import dev.phomc.tensai.fabric.vfx.ClientVisualEffectsImpl;
+import dev.phomc.tensai.keybinding.KeyBindingManager;
+import dev.phomc.tensai.networking.OutboundQueue;
+import dev.phomc.tensai.networking.StringTable;
 import dev.phomc.tensai.server.client.ClientHandle;
 
 public interface FabricClientHandle extends ClientHandle {
 	void transferTo(ServerPlayerEntity newPlayer);
 
 	void setVfx(ClientVisualEffectsImpl vfx);
+
+	void transferOutboundQueue(OutboundQueue outboundQueue);
+
+	void setStringTable(StringTable stringTable);
+
+	void setKeyBindingManager(KeyBindingManager keyBindingManager);
+
+	void releaseKeyBindingManager();
 }
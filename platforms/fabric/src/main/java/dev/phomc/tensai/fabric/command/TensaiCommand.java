@@ -0,0 +1,107 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.fabric.command;
+
+import static net.minecraft.server.command.CommandManager.argument;
+import static net.minecraft.server.command.CommandManager.literal;
+
+import com.mojang.brigadier.arguments.BoolArgumentType;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+
+import dev.phomc.tensai.networking.Compression;
+import dev.phomc.tensai.networking.RejectedMessages;
+import dev.phomc.tensai.scheduler.Scheduler;
+import dev.phomc.tensai.server.TensaiServer;
+
+public class TensaiCommand {
+	public static final String COMMAND = "tensai";
+	public static final String COMMAND_SCHEDULER = "scheduler";
+	public static final String COMMAND_COMPRESSION = "compression";
+	public static final String COMMAND_REJECTED = "rejected";
+	public static final int MAX_TASK_LINES = 10;
+
+	public static LiteralArgumentBuilder<ServerCommandSource> tensai() {
+		LiteralArgumentBuilder<ServerCommandSource> ret = literal(COMMAND);
+		ret.requires(source -> source.hasPermissionLevel(4));
+		ret.then(literal(COMMAND_SCHEDULER)
+				.then(literal("metrics")
+						.then(argument("enabled", BoolArgumentType.bool())
+								.executes(ctx -> setMetricsEnabled(ctx, BoolArgumentType.getBool(ctx, "enabled")))))
+				.executes(TensaiCommand::showScheduler));
+		ret.then(literal(COMMAND_COMPRESSION)
+				.then(literal("threshold")
+						.then(argument("bytes", IntegerArgumentType.integer(-1))
+								.executes(ctx -> setCompressionThreshold(ctx, IntegerArgumentType.getInteger(ctx, "bytes")))))
+				.executes(TensaiCommand::showCompression));
+		ret.then(literal(COMMAND_REJECTED)
+				.executes(TensaiCommand::showRejected));
+		return ret;
+	}
+
+	private static Scheduler getScheduler(CommandContext<ServerCommandSource> ctx) {
+		return ((TensaiServer) ctx.getSource().getServer()).getTaskScheduler();
+	}
+
+	private static int showScheduler(CommandContext<ServerCommandSource> ctx) {
+		for (String line : getScheduler(ctx).snapshot().format(MAX_TASK_LINES)) {
+			ctx.getSource().sendFeedback(Text.literal(line), false);
+		}
+
+		return 1;
+	}
+
+	private static int setMetricsEnabled(CommandContext<ServerCommandSource> ctx, boolean enabled) {
+		getScheduler(ctx).setMetricsEnabled(enabled);
+		ctx.getSource().sendFeedback(Text.literal("Scheduler metrics " + (enabled ? "enabled" : "disabled")), true);
+		return 1;
+	}
+
+	private static int showCompression(CommandContext<ServerCommandSource> ctx) {
+		for (String line : Compression.format()) {
+			ctx.getSource().sendFeedback(Text.literal(line), false);
+		}
+
+		return 1;
+	}
+
+	private static int showRejected(CommandContext<ServerCommandSource> ctx) {
+		for (String line : RejectedMessages.format()) {
+			ctx.getSource().sendFeedback(Text.literal(line), false);
+		}
+
+		return 1;
+	}
+
+	private static int setCompressionThreshold(CommandContext<ServerCommandSource> ctx, int threshold) {
+		Compression.setThreshold(threshold);
+		ctx.getSource().sendFeedback(Text.literal("Compression threshold set to " + threshold), true);
+		return 1;
+	}
+}
@@ -77,7 +77,8 @@ public interface KeyStateUpdateEvent {
 		/**
 		 * Called when the key states are updated.
 		 * @param player the relevant player
-		 * @param keyStates a modifiable, shared map
+		 * @param keyStates an unmodifiable view of the updated keys, which must not be kept, see
+		 *                  {@link dev.phomc.tensai.keybinding.KeyStateChanges}
 		 */
 		void updateKeyState(ServerPlayerEntity player, Map<Key, KeyState> keyStates);
 	}
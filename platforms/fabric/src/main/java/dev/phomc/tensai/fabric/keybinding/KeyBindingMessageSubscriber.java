@@ -26,21 +26,20 @@
 
 import java.util.Collections;
 import java.util.Map;
-import java.util.Objects;
 
 import net.minecraft.server.network.ServerPlayNetworkHandler;
 
+import net.fabricmc.fabric.api.networking.v1.PacketSender;
+
 import dev.phomc.tensai.fabric.client.FabricClientHandle;
 import dev.phomc.tensai.fabric.event.ServerKeybindingEvents;
 import dev.phomc.tensai.fabric.mixins.ServerPlayNetworkAddonMixin;
 import dev.phomc.tensai.fabric.networking.ServerSubscriber;
 import dev.phomc.tensai.keybinding.Key;
-import dev.phomc.tensai.keybinding.KeyBindingManager;
 import dev.phomc.tensai.keybinding.KeyState;
 import dev.phomc.tensai.networking.Channel;
-import dev.phomc.tensai.networking.message.MessageType;
 import dev.phomc.tensai.networking.message.c2s.KeyBindingRegisterResponse;
-import dev.phomc.tensai.networking.message.c2s.KeyBindingStateUpdate;
+import dev.phomc.tensai.networking.message.c2s.KeyBindingStateView;
 
 public class KeyBindingMessageSubscriber extends ServerSubscriber {
 	public KeyBindingMessageSubscriber(Channel channel) {
@@ -49,36 +48,18 @@ public KeyBindingMessageSubscriber(Channel channel) {
 
 	@Override
 	public void onInitialize() {
-		subscribe(MessageType.KEYBINDING_REGISTER_RESPONSE, (data, sender) -> {
-			KeyBindingRegisterResponse msg = new KeyBindingRegisterResponse();
-			msg.unpack(data);
+		subscribe(KeyBindingRegisterResponse.TYPE, (msg, sender) -> {
 			ServerKeybindingEvents.REGISTER_RESULT.invoker().respond(((ServerPlayNetworkAddonMixin) sender).getHandler().player, Collections.unmodifiableMap(msg.getStatus()));
 		});
 
-		subscribe(MessageType.KEYBINDING_STATE_UPDATE, (data, sender) -> {
-			ServerPlayNetworkHandler handler = ((ServerPlayNetworkAddonMixin) sender).getHandler();
-			FabricClientHandle clientHandle = (FabricClientHandle) handler.player;
-			KeyBindingStateUpdate msg = new KeyBindingStateUpdate();
-			msg.unpack(data);
-
-			KeyBindingManager kbm = clientHandle.getKeyBindingManager();
-
-			for (Key k : kbm.getRegisteredKeys()) {
-				Objects.requireNonNull(kbm.getKeyState(k)).sweep();
-			}
-
-			for (Map.Entry<Key, KeyState> ent : msg.getStates().entrySet()) {
-				KeyState ref = kbm.getKeyState(ent.getKey());
-
-				if (ref == null) {
-					kbm.setKeyState(ent.getKey(), ent.getValue());
-				} else {
-					ref.copyFrom(ent.getValue());
-					ent.setValue(ref); // point reference to original objects
-				}
-			}
+		subscribe(KeyBindingStateView.TYPE, this::onStateUpdate);
+		subscribe(KeyBindingStateView.COMPACT_TYPE, this::onStateUpdate);
+	}
 
-			ServerKeybindingEvents.STATE_UPDATE.invoker().updateKeyState(handler.player, msg.getStates());
-		});
+	private void onStateUpdate(KeyBindingStateView msg, PacketSender sender) {
+		ServerPlayNetworkHandler handler = ((ServerPlayNetworkAddonMixin) sender).getHandler();
+		FabricClientHandle clientHandle = (FabricClientHandle) handler.player;
+		Map<Key, KeyState> states = clientHandle.getKeyBindingManager().applyStateUpdate(msg);
+		ServerKeybindingEvents.STATE_UPDATE.invoker().updateKeyState(handler.player, states);
 	}
 }
@@ -33,6 +33,7 @@
 
 import dev.phomc.tensai.fabric.scheduler.ServerScheduler;
 import dev.phomc.tensai.fabric.vfx.GlobalVisualEffectsImpl;
+import dev.phomc.tensai.keybinding.KeyStateStore;
 import dev.phomc.tensai.scheduler.Scheduler;
 import dev.phomc.tensai.server.TensaiServer;
 import dev.phomc.tensai.server.vfx.VisualEffects;
@@ -49,6 +50,9 @@ public abstract class MinecraftServerMixin implements TensaiServer {
 	@Unique
 	private ServerScheduler serverScheduler;
 
+	@Unique
+	private final KeyStateStore keyStateStore = new KeyStateStore();
+
 	@Override
 	public VisualEffects getGlobalVfx() {
 		if (globalVfx == null) globalVfx = new GlobalVisualEffectsImpl((MinecraftServer) (Object) this);
@@ -57,10 +61,15 @@ public VisualEffects getGlobalVfx() {
 
 	@Override
 	public Scheduler getTaskScheduler() {
-		if (serverScheduler == null) serverScheduler = new ServerScheduler();
+		if (serverScheduler == null) serverScheduler = new ServerScheduler(this);
 		return serverScheduler;
 	}
 
+	@Override
+	public KeyStateStore getKeyStateStore() {
+		return keyStateStore;
+	}
+
 	@Override
 	public boolean isPrimaryThread() {
 		return Thread.currentThread().equals(serverThread);
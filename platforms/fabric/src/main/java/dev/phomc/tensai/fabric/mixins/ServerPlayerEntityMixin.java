@@ -24,20 +24,28 @@
 
 package dev.phomc.tensai.fabric.mixins;
 
-import io.netty.buffer.Unpooled;
+import org.jetbrains.annotations.NotNull;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Unique;
 
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.util.Identifier;
 
 import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
 
+import dev.phomc.tensai.fabric.TensaiFabric;
 import dev.phomc.tensai.fabric.client.FabricClientHandle;
+import dev.phomc.tensai.fabric.networking.MessageCodec;
 import dev.phomc.tensai.fabric.vfx.ClientVisualEffectsImpl;
 import dev.phomc.tensai.keybinding.KeyBindingManager;
+import dev.phomc.tensai.keybinding.KeyStateStore;
+import dev.phomc.tensai.networking.Capabilities;
 import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.Compression;
+import dev.phomc.tensai.networking.OutboundQueue;
+import dev.phomc.tensai.networking.StringTable;
+import dev.phomc.tensai.networking.message.Message;
+import dev.phomc.tensai.server.TensaiServer;
 import dev.phomc.tensai.server.vfx.VisualEffects;
 
 @Mixin(ServerPlayerEntity.class)
@@ -48,19 +56,93 @@ public abstract class ServerPlayerEntityMixin implements FabricClientHandle {
 	@Unique
 	private KeyBindingManager keyBindingManager;
 
+	// set once the connection is closed or moved to another entity, guarded by this
+	@Unique
+	private boolean keyBindingManagerReleased;
+
+	@Unique
+	private volatile Capabilities capabilities = Capabilities.LEGACY;
+
+	@Unique
+	private final OutboundQueue outboundQueue = new OutboundQueue();
+
+	@Unique
+	private StringTable stringTable = new StringTable();
+
 	@Override
 	public void sendPluginMessage(Channel channel, byte[] bytes) {
-		PacketByteBuf buf = new PacketByteBuf(Unpooled.wrappedBuffer(bytes));
-		ServerPlayNetworking.send((ServerPlayerEntity) (Object) this, new Identifier(channel.getNamespace()), buf);
+		Capabilities capabilities = this.capabilities;
+		if (isUnreachable(channel, capabilities)) return;
+		if (capabilities.has(Capabilities.Feature.COMPRESSION)) bytes = Compression.compress(bytes);
+		boolean multiplexed = channel.isMultiplexed(capabilities);
+		ServerPlayNetworking.send((ServerPlayerEntity) (Object) this, MessageCodec.identifier(channel, multiplexed), MessageCodec.wrap(channel, bytes, multiplexed));
+	}
+
+	@Override
+	public void sendMessage(Channel channel, Message message) {
+		Capabilities capabilities = this.capabilities;
+
+		if (capabilities.has(Capabilities.Feature.MESSAGE_BUNDLE)) {
+			outboundQueue.add(channel, message, capabilities.has(Capabilities.Feature.STRING_TABLE) ? stringTable : null);
+		} else {
+			sendMessageImmediately(channel, message);
+		}
+	}
+
+	@Override
+	public void sendMessageImmediately(Channel channel, Message message) {
+		Capabilities capabilities = this.capabilities;
+		if (isUnreachable(channel, capabilities)) return;
+		boolean multiplexed = channel.isMultiplexed(capabilities);
+		PacketByteBuf buf = capabilities.has(Capabilities.Feature.COMPRESSION)
+				? MessageCodec.encodeCompressed(channel, message, multiplexed)
+				: MessageCodec.encode(channel, message, multiplexed);
+		ServerPlayNetworking.send((ServerPlayerEntity) (Object) this, MessageCodec.identifier(channel, multiplexed), buf);
+	}
+
+	@Unique
+	private boolean isUnreachable(Channel channel, Capabilities capabilities) {
+		if (channel.isReachable(capabilities)) return false;
+		TensaiFabric.LOGGER.debug("Dropped message at channel {} since the client does not support multiplexing", channel);
+		return true;
+	}
+
+	@Override
+	public void flushMessages() {
+		outboundQueue.flush(this::sendPluginMessage);
 	}
 
 	@Override
 	public void transferTo(ServerPlayerEntity newPlayer) {
 		FabricClientHandle newClientHandle = (FabricClientHandle) newPlayer;
 		newClientHandle.setVfx(this.vfx);
+		newClientHandle.setCapabilities(this.capabilities);
+		newClientHandle.transferOutboundQueue(this.outboundQueue);
+		// the connection stays the same, so does the table of the client
+		newClientHandle.setStringTable(this.stringTable);
+		// key states are not resent after respawning
+		newClientHandle.setKeyBindingManager(takeKeyBindingManager());
 		this.vfx = null;
 	}
 
+	@Unique
+	private synchronized KeyBindingManager takeKeyBindingManager() {
+		KeyBindingManager keyBindingManager = this.keyBindingManager;
+		this.keyBindingManager = null;
+		keyBindingManagerReleased = true;
+		return keyBindingManager;
+	}
+
+	@Override
+	public void transferOutboundQueue(OutboundQueue outboundQueue) {
+		outboundQueue.transferTo(this.outboundQueue);
+	}
+
+	@Override
+	public void setStringTable(StringTable stringTable) {
+		this.stringTable = stringTable;
+	}
+
 	@Override
 	public VisualEffects getVfx() {
 		if (vfx == null) vfx = new ClientVisualEffectsImpl((ServerPlayerEntity) (Object) this);
@@ -73,8 +155,35 @@ public void setVfx(ClientVisualEffectsImpl vfx) {
 	}
 
 	@Override
-	public KeyBindingManager getKeyBindingManager() {
-		if (keyBindingManager == null) keyBindingManager = new KeyBindingManager(this);
+	public @NotNull Capabilities getCapabilities() {
+		return capabilities;
+	}
+
+	@Override
+	public void setCapabilities(@NotNull Capabilities capabilities) {
+		this.capabilities = capabilities;
+	}
+
+	@Override
+	public synchronized KeyBindingManager getKeyBindingManager() {
+		if (keyBindingManager == null) {
+			// a late packet must not take a slot of the store which would never be released again
+			KeyStateStore store = keyBindingManagerReleased ? null : ((TensaiServer) ((ServerPlayerEntity) (Object) this).server).getKeyStateStore();
+			keyBindingManager = new KeyBindingManager(this, store);
+		}
+
 		return keyBindingManager;
 	}
+
+	@Override
+	public synchronized void setKeyBindingManager(KeyBindingManager keyBindingManager) {
+		if (keyBindingManager != null) keyBindingManager.setClientHandle(this);
+		this.keyBindingManager = keyBindingManager;
+	}
+
+	@Override
+	public synchronized void releaseKeyBindingManager() {
+		keyBindingManagerReleased = true;
+		if (keyBindingManager != null) keyBindingManager.release();
+	}
 }
@@ -0,0 +1,148 @@
+/*
+ * This file is part of tensai, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) 2023 PhoMC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.phomc.tensai.fabric.networking;
+
+import java.io.IOException;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.Identifier;
+
+import net.fabricmc.fabric.api.networking.v1.PacketByteBufs;
+
+import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.Compression;
+import dev.phomc.tensai.networking.message.Message;
+
+public class MessageCodec {
+	public static final Identifier MULTIPLEXED_IDENTIFIER = new Identifier(Channel.MULTIPLEXED_NAMESPACE);
+
+	/**
+	 * Gets the plugin channel which carries messages of the given channel.
+	 *
+	 * @param channel     channel
+	 * @param multiplexed whether the channel is multiplexed
+	 * @return plugin channel identifier
+	 * @see Channel#isMultiplexed(dev.phomc.tensai.networking.Capabilities)
+	 */
+	public static Identifier identifier(Channel channel, boolean multiplexed) {
+		return multiplexed ? MULTIPLEXED_IDENTIFIER : new Identifier(channel.getNamespace());
+	}
+
+	/**
+	 * Encodes a message of the given channel, prefixed with the channel id if it is multiplexed.
+	 *
+	 * @param channel     channel
+	 * @param message     message
+	 * @param multiplexed whether the channel is multiplexed
+	 * @return packet buffer
+	 */
+	public static PacketByteBuf encode(Channel channel, Message message, boolean multiplexed) {
+		PacketByteBuf buf = PacketByteBufs.create();
+		if (multiplexed) buf.writeVarInt(channel.getId());
+		write(buf, message);
+		return buf;
+	}
+
+	/**
+	 * Encodes a message of the given channel like {@link #encode(Channel, Message, boolean)}, then compresses it in
+	 * place if its body reaches the {@link Compression#getThreshold() threshold}.<br>
+	 * Messages below the threshold are never copied to a byte array.
+	 *
+	 * @param channel     channel
+	 * @param message     message
+	 * @param multiplexed whether the channel is multiplexed
+	 * @return packet buffer
+	 */
+	public static PacketByteBuf encodeCompressed(Channel channel, Message message, boolean multiplexed) {
+		PacketByteBuf buf = PacketByteBufs.create();
+		if (multiplexed) buf.writeVarInt(channel.getId());
+		int start = buf.writerIndex();
+		write(buf, message);
+
+		int size = buf.writerIndex() - start;
+		if (!Compression.reachesThreshold(size)) return buf;
+		byte[] compressed = Compression.compress(ByteBufUtil.getBytes(buf, start, size));
+		buf.writerIndex(start);
+		buf.writeBytes(compressed);
+		return buf;
+	}
+
+	/**
+	 * Wraps an encoded message of the given channel, prefixed with the channel id if it is multiplexed.
+	 *
+	 * @param channel     channel
+	 * @param bytes       message data
+	 * @param multiplexed whether the channel is multiplexed
+	 * @return packet buffer
+	 */
+	public static PacketByteBuf wrap(Channel channel, byte[] bytes, boolean multiplexed) {
+		if (!multiplexed) return new PacketByteBuf(Unpooled.wrappedBuffer(bytes));
+		PacketByteBuf buf = PacketByteBufs.create();
+		buf.writeVarInt(channel.getId());
+		buf.writeBytes(bytes);
+		return buf;
+	}
+
+	/**
+	 * Encodes a message directly into a new packet buffer, without intermediate byte arrays.<br>
+	 * The buffer is a heap buffer which is not pooled: vanilla custom payload packets do not release their buffer,
+	 * so a pooled buffer would be leaked.
+	 *
+	 * @param message message
+	 * @return packet buffer
+	 */
+	public static PacketByteBuf encode(Message message) {
+		PacketByteBuf buf = PacketByteBufs.create();
+		write(buf, message);
+		return buf;
+	}
+
+	/**
+	 * Decompresses a received message if it is compressed.
+	 *
+	 * @param buf     message data, starting at the message id
+	 * @param maxSize the maximum size of the decompressed message in bytes
+	 * @return the given buffer, or a new buffer of the decompressed message
+	 * @throws IOException if the message is malformed or too large
+	 */
+	public static ByteBuf decompress(ByteBuf buf, int maxSize) throws IOException {
+		if (!Compression.isCompressed(buf.getByte(buf.readerIndex()))) return buf;
+		byte[] frame = ByteBufUtil.getBytes(buf);
+		return Unpooled.wrappedBuffer(Compression.decompress(frame, 0, frame.length, maxSize));
+	}
+
+	private static void write(PacketByteBuf buf, Message message) {
+		try {
+			message.writeTo(new ByteBufOutputStream(buf));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -24,10 +24,13 @@
 
 package dev.phomc.tensai.fabric.networking;
 
-import io.netty.buffer.ByteBufUtil;
-import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
 
-import net.minecraft.network.PacketByteBuf;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.util.Identifier;
 
@@ -37,29 +40,87 @@
 import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
 
 import dev.phomc.tensai.fabric.TensaiFabric;
+import dev.phomc.tensai.fabric.mixins.ServerPlayNetworkAddonMixin;
 import dev.phomc.tensai.networking.Channel;
+import dev.phomc.tensai.networking.RejectedMessages;
 import dev.phomc.tensai.networking.Subscriber;
 import dev.phomc.tensai.networking.message.Message;
+import dev.phomc.tensai.server.client.ClientHandle;
 
 @Environment(EnvType.SERVER)
 public abstract class ServerSubscriber extends Subscriber<PacketSender> {
+	private static final Map<Channel, ServerSubscriber> SUBSCRIBERS = new ConcurrentHashMap<>();
 	private final Identifier identifier;
 
 	public ServerSubscriber(Channel channel) {
 		super(channel);
 		identifier = new Identifier(channel.getNamespace());
+		SUBSCRIBERS.put(channel, this);
+
+		// other channels are only received through the multiplexed channel
+		if (channel.isBuiltin()) {
+			ServerPlayNetworking.registerGlobalReceiver(identifier, (server, player, handler, buf, responseSender) -> {
+				receive(buf, responseSender);
+			});
+		}
+	}
+
+	/**
+	 * Registers the receiver of {@link Channel#MULTIPLEXED_NAMESPACE}, which dispatches messages to the subscriber of
+	 * their channel.
+	 */
+	public static void registerMultiplexedReceiver() {
+		ServerPlayNetworking.registerGlobalReceiver(MessageCodec.MULTIPLEXED_IDENTIFIER, (server, player, handler, buf, responseSender) -> {
+			int id;
+
+			try {
+				id = buf.readVarInt();
+			} catch (RuntimeException e) {
+				// PacketByteBuf reports a truncated or oversized VarInt with unchecked exceptions
+				RejectedMessages.count(RejectedMessages.Reason.MALFORMED);
+				TensaiFabric.LOGGER.debug("Malformed multiplexed message", e);
+				return;
+			}
 
-		ServerPlayNetworking.registerGlobalReceiver(identifier, (server, player, handler, buf, responseSender) -> {
-			byte[] bytes = ByteBufUtil.getBytes(buf);
-			TensaiFabric.LOGGER.debug("Received message id {} at channel {}", bytes[0], getChannel());
-			Callback<PacketSender> callback = subscription.get(bytes[0]);
+			Channel channel = Channel.byId(id);
+			ServerSubscriber subscriber = channel == null ? null : SUBSCRIBERS.get(channel);
 
-			if (callback != null) {
-				callback.call(bytes, responseSender);
+			if (subscriber == null) {
+				RejectedMessages.count(RejectedMessages.Reason.UNKNOWN);
+				TensaiFabric.LOGGER.debug("Received message at unknown channel id {}", id);
+				return;
 			}
+
+			subscriber.receive(buf, responseSender);
 		});
 	}
 
+	private void receive(ByteBuf buf, PacketSender sender) {
+		if (!buf.isReadable()) {
+			RejectedMessages.count(RejectedMessages.Reason.MALFORMED);
+			return;
+		}
+
+		byte id = buf.getByte(buf.readerIndex());
+
+		// the size is checked before the buffer is copied for decompression
+		if (!accept(id, buf.readableBytes())) {
+			TensaiFabric.LOGGER.debug("Rejected message id {} of {} bytes at channel {}", id, buf.readableBytes(), getChannel());
+			return;
+		}
+
+		try {
+			buf = MessageCodec.decompress(buf, getMaxSize(id));
+			id = buf.getByte(buf.readerIndex());
+			TensaiFabric.LOGGER.debug("Received message id {} at channel {}", id, getChannel());
+			dispatch(id, new ByteBufInputStream(buf), sender);
+		} catch (IOException e) {
+			// not logged as a warning, which would let a client flood the log
+			RejectedMessages.count(RejectedMessages.Reason.MALFORMED);
+			TensaiFabric.LOGGER.debug("Malformed message id {} at channel {}", id, getChannel(), e);
+		}
+	}
+
 	public abstract void onInitialize();
 
 	public Identifier getIdentifier() {
@@ -67,10 +128,10 @@ public Identifier getIdentifier() {
 	}
 
 	public void publish(Message message, PacketSender consumer) {
-		consumer.sendPacket(identifier, new PacketByteBuf(Unpooled.wrappedBuffer(message.pack())));
+		publish(message, ((ServerPlayNetworkAddonMixin) consumer).getHandler().player);
 	}
 
 	public void publish(Message message, ServerPlayerEntity player) {
-		publish(message, ServerPlayNetworking.getSender(player));
+		((ClientHandle) player).sendMessageImmediately(getChannel(), message);
 	}
 }
@@ -24,15 +24,33 @@
 
 package dev.phomc.tensai.fabric.scheduler;
 
+import org.jetbrains.annotations.NotNull;
+
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 
+import dev.phomc.tensai.fabric.TensaiFabric;
 import dev.phomc.tensai.scheduler.Scheduler;
+import dev.phomc.tensai.server.TensaiServer;
 
 @Environment(EnvType.SERVER)
 public class ServerScheduler extends Scheduler {
-	public ServerScheduler() {
-		ServerTickEvents.END_SERVER_TICK.register(server -> onTick());
+	private final TensaiServer server;
+
+	public ServerScheduler(TensaiServer server) {
+		super(Backend.TIMING_WHEEL);
+		this.server = server;
+		ServerTickEvents.END_SERVER_TICK.register(s -> onTick());
+	}
+
+	@Override
+	protected boolean isPrimaryThread() {
+		return server.isPrimaryThread();
+	}
+
+	@Override
+	protected void handleException(@NotNull String message, @NotNull Throwable throwable) {
+		TensaiFabric.LOGGER.error(message, throwable);
 	}
 }
@@ -41,6 +41,6 @@ public ClientVisualEffectsImpl(ServerPlayerEntity player) {
 
 	@Override
 	public void playAnimationOnce(String type, double startSec, double durationSec, AnimationProperty<?>... properties) {
-		((FabricClientHandle) player).sendPluginMessage(Channel.VFX, new AnimationPlayMessage(type, AnimationPlayMessage.PLAY_ONCE, startSec, durationSec, properties).pack());
+		((FabricClientHandle) player).sendMessage(Channel.VFX, new AnimationPlayMessage(type, AnimationPlayMessage.PLAY_ONCE, startSec, durationSec, properties));
 	}
 }